@@ -26,6 +26,9 @@
 package me.lucko.luckperms.api;
 
 import me.lucko.luckperms.LuckPerms;
+import me.lucko.luckperms.api.caching.CacheStatistics;
+import me.lucko.luckperms.api.caching.MetaData;
+import me.lucko.luckperms.api.caching.PermissionData;
 import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.ContextManager;
 import me.lucko.luckperms.api.context.ContextSet;
@@ -219,6 +222,24 @@ public interface LuckPermsApi {
      */
     @NonNull Collection<String> getKnownPermissions();
 
+    /**
+     * Gets statistics for the caches which hold {@link PermissionData}
+     * for all users and groups.
+     *
+     * @return the permission data cache statistics
+     * @since 4.4
+     */
+    @NonNull CacheStatistics getPermissionDataCacheStatistics();
+
+    /**
+     * Gets statistics for the caches which hold {@link MetaData}
+     * for all users and groups.
+     *
+     * @return the meta data cache statistics
+     * @since 4.4
+     */
+    @NonNull CacheStatistics getMetaDataCacheStatistics();
+
     /**
      * Gets the {@link NodeFactory}.
      *
@@ -39,6 +39,7 @@ import me.lucko.luckperms.api.nodetype.types.SuffixType;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -556,6 +557,29 @@ public interface PermissionHolder {
      */
     @NonNull DataMutateResult unsetTransientPermission(@NonNull Node node);
 
+    /**
+     * Sets and unsets a batch of permission nodes for the permission holder.
+     *
+     * <p>The nodes to unset are removed first, and then the nodes to set are added, following
+     * the same rules as {@link #unsetPermission(Node)} and {@link #setPermission(Node)}. The
+     * holders caches are only invalidated once, and a single
+     * {@link me.lucko.luckperms.api.event.node.NodeBatchMutateEvent} is called for the whole
+     * batch, instead of an event for each node.</p>
+     *
+     * <p>The effect of this mutate operation will not persist in storage unless changes are
+     * explicitly saved. If changes are not saved, the effect will only be observed until the next
+     * time the holders permission data is (re)loaded. Changes to {@link User}s should be saved
+     * using {@link UserManager#saveUser(User)}, and changes to {@link Group}s should be saved
+     * using {@link GroupManager#saveGroup(Group)}.</p>
+     *
+     * @param toSet   the nodes to be set
+     * @param toUnset the nodes to be unset
+     * @return {@link DataMutateResult#SUCCESS} if the holders data was changed, otherwise {@link DataMutateResult#FAIL}
+     * @throws NullPointerException if either collection is null
+     * @since 4.4
+     */
+    @NonNull DataMutateResult setPermissions(@NonNull Collection<? extends Node> toSet, @NonNull Collection<? extends Node> toUnset);
+
     /**
      * Clears any nodes from the holder which pass the predicate.
      *
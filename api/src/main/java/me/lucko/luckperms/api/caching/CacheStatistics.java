@@ -0,0 +1,85 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.caching;
+
+/**
+ * A snapshot of the statistics recorded for the caches which hold
+ * {@link CachedDataContainer}s for all users and groups.
+ *
+ * <p>Statistics are accumulated from when the plugin was enabled, and count
+ * every lookup made through a {@link CachedDataContainer}, including those
+ * served by its small cache of recently used values.</p>
+ *
+ * @since 4.4
+ */
+public interface CacheStatistics {
+
+    /**
+     * Gets the approximate number of entries currently held in the caches
+     * of loaded users and groups.
+     *
+     * @return the number of entries
+     */
+    long getEntryCount();
+
+    /**
+     * Gets the number of lookups which returned a cached value.
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+    /**
+     * Gets the number of lookups which had to calculate a new value.
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+    /**
+     * Gets the ratio of lookups which returned a cached value, or 1.0 if
+     * no lookups have been made.
+     *
+     * @return the hit rate
+     */
+    double getHitRate();
+
+    /**
+     * Gets the number of entries which have been evicted, either because
+     * they expired, or because the cache reached its maximum size.
+     *
+     * @return the eviction count
+     */
+    long getEvictionCount();
+
+    /**
+     * Gets the average time spent calculating new values, in nanoseconds.
+     *
+     * @return the average load time
+     */
+    double getAverageLoadPenalty();
+
+}
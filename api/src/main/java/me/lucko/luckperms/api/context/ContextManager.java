@@ -161,8 +161,18 @@ public interface ContextManager {
     /**
      * Invalidates the lookup cache for a given subject
      *
+     * <p>This should be called by {@link SignallingContextCalculator}s when the
+     * context of the subject changes.</p>
+     *
      * @param subject the subject
      */
     void invalidateCache(@NonNull Object subject);
 
+    /**
+     * Invalidates the lookup cache for all subjects, and the cached static contexts.
+     *
+     * @since 4.4
+     */
+    void invalidateCaches();
+
 }
@@ -26,25 +26,39 @@
 package me.lucko.luckperms.api.context;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * An immutable implementation of {@link ContextSet}.
  *
+ * <p>Context pairs are stored in sorted arrays of interned strings, and instances
+ * are themselves interned, so equal sets are usually the same instance.</p>
+ *
  * @since 2.16
  */
 public final class ImmutableContextSet extends AbstractContextSet implements ContextSet {
-    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(ImmutableSetMultimap.of());
+    private static final String[] EMPTY_ARRAY = new String[0];
+    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(EMPTY_ARRAY, EMPTY_ARRAY);
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
 
     /**
      * Creates an {@link ImmutableContextSet.Builder}.
@@ -65,7 +79,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      * @throws NullPointerException if key or value is null
      */
     public static @NonNull ImmutableContextSet singleton(@NonNull String key, @NonNull String value) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(sanitizeKey(key), sanitizeValue(value)));
+        return create(new String[]{sanitizeKey(key)}, new String[]{sanitizeValue(value)}, 1);
     }
 
     /**
@@ -80,12 +94,11 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      * @since 3.1
      */
     public static @NonNull ImmutableContextSet of(@NonNull String key1, @NonNull String value1, @NonNull String key2, @NonNull String value2) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(
-                sanitizeKey(key1),
-                sanitizeValue(value1),
-                sanitizeKey(key2),
-                sanitizeValue(value2)
-        ));
+        return create(
+                new String[]{sanitizeKey(key1), sanitizeKey(key2)},
+                new String[]{sanitizeValue(value1), sanitizeValue(value2)},
+                2
+        );
     }
 
     /**
@@ -149,22 +162,146 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
         return EMPTY;
     }
 
-    private final ImmutableSetMultimap<String, String> map;
+    /**
+     * Creates an {@link ImmutableContextSet} from the given (sanitized) pairs.
+     *
+     * @param keys the keys
+     * @param values the values, at the same index as their keys
+     * @param size the number of pairs
+     * @return the interned set
+     */
+    private static ImmutableContextSet create(String[] keys, String[] values, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        // sort the pairs by key, then value
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> compare(keys[i1], values[i1], keys[i2], values[i2]));
+
+        String[] sortedKeys = new String[size];
+        String[] sortedValues = new String[size];
+        int n = 0;
+        for (int i : order) {
+            String key = keys[i];
+            String value = values[i];
+
+            // skip duplicates
+            if (n != 0 && sortedKeys[n - 1].equals(key) && sortedValues[n - 1].equals(value)) {
+                continue;
+            }
+
+            sortedKeys[n] = key.intern();
+            sortedValues[n] = value.intern();
+            n++;
+        }
+
+        if (n != size) {
+            sortedKeys = Arrays.copyOf(sortedKeys, n);
+            sortedValues = Arrays.copyOf(sortedValues, n);
+        }
+        return INTERNER.intern(new ImmutableContextSet(sortedKeys, sortedValues));
+    }
+
+    @SuppressWarnings("StringEquality")
+    private static int compare(String key1, String value1, String key2, String value2) {
+        int ret = key1 == key2 ? 0 : key1.compareTo(key2);
+        if (ret != 0) {
+            return ret;
+        }
+        return value1 == value2 ? 0 : value1.compareTo(value2);
+    }
+
+    /**
+     * The keys in the set, sorted, with the values for each key also sorted
+     */
+    private final String[] keys;
+
+    /**
+     * The values in the set, at the same index as their keys
+     */
+    private final String[] values;
+
     private final int hashCode;
 
-    ImmutableContextSet(ImmutableSetMultimap<String, String> contexts) {
-        this.map = contexts;
-        this.hashCode = this.map.hashCode();
+    /**
+     * A multimap view of the set, lazily created
+     */
+    private volatile ImmutableSetMultimap<String, String> map = null;
+
+    private ImmutableContextSet(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.hashCode = calculateHashCode(keys, values);
+    }
+
+    /**
+     * Calculates a hash code equal to that of a {@link SetMultimap} with the same pairs,
+     * so it remains consistent with {@link MutableContextSet#hashCode()}.
+     */
+    private static int calculateHashCode(String[] keys, String[] values) {
+        int hash = 0;
+        int i = 0;
+        while (i < keys.length) {
+            String key = keys[i];
+            int valuesHash = 0;
+            for (; i < keys.length && keys[i].equals(key); i++) {
+                valuesHash += values[i].hashCode();
+            }
+            hash += key.hashCode() ^ valuesHash;
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the index of the first pair with the given key.
+     *
+     * @param key the key
+     * @return the index, or -1 if the key isn't present
+     */
+    @SuppressWarnings("StringEquality")
+    private int indexOf(String key) {
+        int low = 0;
+        int high = this.keys.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            String midKey = this.keys[mid];
+            int cmp = midKey == key ? 0 : midKey.compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                if (cmp == 0) {
+                    found = mid;
+                }
+                high = mid - 1;
+            }
+        }
+        return found;
     }
 
     @Override
     protected SetMultimap<String, String> backing() {
-        return this.map;
+        ImmutableSetMultimap<String, String> map = this.map;
+        if (map == null) {
+            ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+            for (int i = 0; i < this.keys.length; i++) {
+                builder.put(this.keys[i], this.values[i]);
+            }
+            map = builder.build();
+            this.map = map;
+        }
+        return map;
     }
 
     @Override
     protected void copyTo(SetMultimap<String, String> other) {
-        other.putAll(this.map);
+        for (int i = 0; i < this.keys.length; i++) {
+            other.put(this.keys[i], this.values[i]);
+        }
     }
 
     @Override
@@ -185,32 +322,154 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
 
     @Override
     public @NonNull Set<Map.Entry<String, String>> toSet() {
-        return this.map.entries();
+        return backing().entries();
     }
 
     @Deprecated
     @Override
     public @NonNull Map<String, String> toMap() {
         ImmutableMap.Builder<String, String> m = ImmutableMap.builder();
-        for (Map.Entry<String, String> e : this.map.entries()) {
-            m.put(e.getKey(), e.getValue());
+        for (int i = 0; i < this.keys.length; i++) {
+            m.put(this.keys[i], this.values[i]);
         }
         return m.build();
     }
 
     @Override
     public @NonNull Multimap<String, String> toMultimap() {
-        return this.map;
+        return backing();
+    }
+
+    @Override
+    public boolean containsKey(@NonNull String key) {
+        return indexOf(sanitizeKey(key)) != -1;
+    }
+
+    @Override
+    public @NonNull Set<String> getValues(@NonNull String key) {
+        String k = sanitizeKey(key);
+        int i = indexOf(k);
+        if (i == -1) {
+            return ImmutableSet.of();
+        }
+
+        ImmutableSet.Builder<String> values = ImmutableSet.builder();
+        for (; i < this.keys.length && this.keys[i].equals(k); i++) {
+            values.add(this.values[i]);
+        }
+        return values.build();
+    }
+
+    @Override
+    public boolean has(@NonNull String key, @NonNull String value) {
+        String k = sanitizeKey(key);
+        String v = sanitizeValue(value);
+        int i = indexOf(k);
+        if (i == -1) {
+            return false;
+        }
+        for (; i < this.keys.length && this.keys[i].equals(k); i++) {
+            if (this.values[i].equals(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isSatisfiedBy(@NonNull ContextSet other) {
+        if (this == other) {
+            return true;
+        }
+
+        Objects.requireNonNull(other, "other");
+        if (this.keys.length == 0) {
+            // this is empty, so is therefore always satisfied.
+            return true;
+        }
+
+        if (other instanceof ImmutableContextSet) {
+            ImmutableContextSet that = (ImmutableContextSet) other;
+            if (this.keys.length > that.keys.length) {
+                return false;
+            }
+
+            // both sets are sorted, so walk through them together
+            int j = 0;
+            for (int i = 0; i < this.keys.length; i++) {
+                while (true) {
+                    if (j == that.keys.length) {
+                        return false;
+                    }
+                    int cmp = compare(that.keys[j], that.values[j], this.keys[i], this.values[i]);
+                    j++;
+                    if (cmp == 0) {
+                        break;
+                    }
+                    if (cmp > 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        if (this.keys.length > other.size()) {
+            return false;
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (!other.has(this.keys[i], this.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the contexts in this set with the contexts in another set.
+     *
+     * <p>Contexts are compared in sorted order, by key and then by value. If
+     * one set is a prefix of the other, the smaller set is ordered first.</p>
+     *
+     * @param other the other set
+     * @return a negative integer, zero, or a positive integer as this set is
+     *         ordered before, the same as, or after the other set
+     * @since 4.4
+     */
+    public int compareContents(@NonNull ImmutableContextSet other) {
+        Objects.requireNonNull(other, "other");
+        if (other == this) {
+            return 0;
+        }
+
+        int length = Math.min(this.keys.length, other.keys.length);
+        for (int i = 0; i < length; i++) {
+            int ret = compare(this.keys[i], this.values[i], other.keys[i], other.values[i]);
+            if (ret != 0) {
+                return ret;
+            }
+        }
+        return Integer.compare(this.keys.length, other.keys.length);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
     }
 
     @Override
     public @NonNull Iterator<Map.Entry<String, String>> iterator() {
-        return this.map.entries().iterator();
+        return new EntryIterator();
     }
 
     @Override
     public Spliterator<Map.Entry<String, String>> spliterator() {
-        return this.map.entries().spliterator();
+        return Spliterators.spliterator(iterator(), this.keys.length, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
     }
 
     @Override
@@ -222,7 +481,9 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
         // fast(er) path for ImmutableContextSet comparisons
         if (that instanceof ImmutableContextSet) {
             ImmutableContextSet immutableThat = (ImmutableContextSet) that;
-            if (this.hashCode != immutableThat.hashCode) return false;
+            return this.hashCode == immutableThat.hashCode &&
+                    Arrays.equals(this.keys, immutableThat.keys) &&
+                    Arrays.equals(this.values, immutableThat.values);
         }
 
         final Multimap<String, String> thatBacking;
@@ -242,7 +503,25 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
 
     @Override
     public String toString() {
-        return "ImmutableContextSet(contexts=" + this.map + ")";
+        return "ImmutableContextSet(contexts=" + backing() + ")";
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.index < ImmutableContextSet.this.keys.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = this.index++;
+            return Maps.immutableEntry(ImmutableContextSet.this.keys[i], ImmutableContextSet.this.values[i]);
+        }
     }
 
     /**
@@ -251,21 +530,16 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      * @since 4.1
      */
     public static final class Builder {
-        private ImmutableSetMultimap.Builder<String, String> builder;
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
 
         private Builder() {
 
         }
 
-        private synchronized ImmutableSetMultimap.Builder<String, String> builder() {
-            if (this.builder == null) {
-                this.builder = ImmutableSetMultimap.builder();
-            }
-            return this.builder;
-        }
-
-        private void put(String key, String value) {
-            builder().put(key, value);
+        private synchronized void put(String key, String value) {
+            this.keys.add(key);
+            this.values.add(value);
         }
 
         /**
@@ -348,10 +622,15 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
          */
         public @NonNull Builder addAll(@NonNull ContextSet contextSet) {
             Objects.requireNonNull(contextSet, "contextSet");
-            if (contextSet instanceof AbstractContextSet) {
+            if (contextSet instanceof ImmutableContextSet) {
+                ImmutableContextSet other = ((ImmutableContextSet) contextSet);
+                for (int i = 0; i < other.keys.length; i++) {
+                    put(other.keys[i], other.values[i]);
+                }
+            } else if (contextSet instanceof AbstractContextSet) {
                 AbstractContextSet other = ((AbstractContextSet) contextSet);
-                if (!other.isEmpty()) {
-                    builder().putAll(other.backing());
+                for (Map.Entry<String, String> e : other.backing().entries()) {
+                    put(e.getKey(), e.getValue());
                 }
             } else {
                 addAll(contextSet.toMultimap());
@@ -365,12 +644,9 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
          *
          * @return an {@link ImmutableContextSet} from the builder
          */
-        public @NonNull ImmutableContextSet build() {
-            if (this.builder == null) {
-                return empty();
-            } else {
-                return new ImmutableContextSet(this.builder.build());
-            }
+        public synchronized @NonNull ImmutableContextSet build() {
+            int size = this.keys.size();
+            return create(this.keys.toArray(new String[size]), this.values.toArray(new String[size]), size);
         }
     }
 }
@@ -141,10 +141,7 @@ public final class MutableContextSet extends AbstractContextSet implements Conte
     public static @NonNull MutableContextSet fromSet(@NonNull ContextSet contextSet) {
         Objects.requireNonNull(contextSet, "contextSet");
 
-        if (contextSet instanceof ImmutableContextSet) {
-            SetMultimap<String, String> map = ((ImmutableContextSet) contextSet).backing();
-            return new MutableContextSet(map);
-        } else if (contextSet instanceof MutableContextSet) {
+        if (contextSet instanceof MutableContextSet) {
             return contextSet.mutableCopy();
         } else {
             MutableContextSet set = create();
@@ -196,7 +193,7 @@ public final class MutableContextSet extends AbstractContextSet implements Conte
             return ImmutableContextSet.empty();
         }
         synchronized (this.map) {
-            return new ImmutableContextSet(ImmutableSetMultimap.copyOf(this.map));
+            return ImmutableContextSet.builder().addAll(this).build();
         }
     }
 
@@ -0,0 +1,47 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.context;
+
+/**
+ * Extension of {@link ContextCalculator} which signals the {@link ContextManager}
+ * whenever the contexts it provides for a subject change.
+ *
+ * <p>Calculators implementing this interface must call
+ * {@link ContextManager#invalidateCache(Object)} when the context of a subject
+ * changes, or {@link ContextManager#invalidateCaches()} if the change applies to
+ * all subjects.</p>
+ *
+ * <p>If all registered calculators implement this interface, the results of a
+ * context lookup are cached until they are invalidated. Otherwise, results are
+ * only cached for a short period of time.</p>
+ *
+ * @param <T> the subject type. Is ALWAYS the player class of the platform.
+ * @since 4.4
+ */
+@FunctionalInterface
+public interface SignallingContextCalculator<T> extends ContextCalculator<T> {
+
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.context;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImmutableContextSetTest {
+
+    private static List<String> pairs(ContextSet set) {
+        List<String> pairs = new ArrayList<>();
+        for (Map.Entry<String, String> entry : set) {
+            pairs.add(entry.getKey() + "=" + entry.getValue());
+        }
+        return pairs;
+    }
+
+    @Test
+    public void testPairsAreSortedAndDeduplicated() {
+        ImmutableContextSet set = ImmutableContextSet.builder()
+                .add("world", "nether")
+                .add("server", "survival")
+                .add("World", "End")
+                .add("server", "survival")
+                .add("server", "lobby")
+                .build();
+
+        assertEquals(ImmutableList.of("server=lobby", "server=survival", "world=end", "world=nether"), pairs(set));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    public void testEqualSetsAreInterned() {
+        ImmutableContextSet a = ImmutableContextSet.of("server", "survival", "world", "nether");
+        ImmutableContextSet b = ImmutableContextSet.of("world", "nether", "server", "survival");
+
+        assertSame(a, b);
+        assertSame(ImmutableContextSet.empty(), ImmutableContextSet.builder().build());
+    }
+
+    @Test
+    public void testConsistentWithMutableSet() {
+        MutableContextSet mutable = MutableContextSet.create();
+        mutable.add("world", "nether");
+        mutable.add("server", "survival");
+        mutable.add("server", "lobby");
+
+        ImmutableContextSet immutable = mutable.makeImmutable();
+        assertEquals(mutable, immutable);
+        assertEquals(immutable, mutable);
+        assertEquals(mutable.hashCode(), immutable.hashCode());
+    }
+
+    @Test
+    public void testLookups() {
+        ImmutableContextSet set = ImmutableContextSet.builder()
+                .add("server", "survival")
+                .add("server", "lobby")
+                .add("world", "nether")
+                .build();
+
+        assertTrue(set.containsKey("server"));
+        assertTrue(set.containsKey("WORLD"));
+        assertFalse(set.containsKey("gamemode"));
+
+        assertTrue(set.has("server", "lobby"));
+        assertTrue(set.has("World", "Nether"));
+        assertFalse(set.has("world", "end"));
+
+        assertEquals(2, set.getValues("server").size());
+        assertTrue(set.getValues("gamemode").isEmpty());
+    }
+
+    @Test
+    public void testIsSatisfiedBy() {
+        ImmutableContextSet set = ImmutableContextSet.of("server", "survival", "world", "nether");
+
+        assertTrue(ImmutableContextSet.empty().isSatisfiedBy(set));
+        assertTrue(set.isSatisfiedBy(set));
+        assertTrue(set.isSatisfiedBy(ImmutableContextSet.builder()
+                .add("server", "survival")
+                .add("world", "nether")
+                .add("gamemode", "creative")
+                .build()));
+
+        assertFalse(set.isSatisfiedBy(ImmutableContextSet.empty()));
+        assertFalse(set.isSatisfiedBy(ImmutableContextSet.singleton("server", "survival")));
+        assertFalse(set.isSatisfiedBy(ImmutableContextSet.of("server", "survival", "world", "end")));
+        assertFalse(set.isSatisfiedBy(ImmutableContextSet.of("server", "lobby", "world", "nether")));
+    }
+
+    @Test
+    public void testIsSatisfiedByMutableSet() {
+        ImmutableContextSet set = ImmutableContextSet.of("server", "survival", "world", "nether");
+
+        MutableContextSet other = MutableContextSet.create();
+        other.add("world", "nether");
+        other.add("server", "survival");
+        assertTrue(set.isSatisfiedBy(other));
+
+        other.remove("world", "nether");
+        other.add("gamemode", "creative");
+        assertFalse(set.isSatisfiedBy(other));
+    }
+
+    @Test
+    public void testCompareContents() {
+        ImmutableContextSet a = ImmutableContextSet.singleton("server", "lobby");
+        ImmutableContextSet b = ImmutableContextSet.singleton("server", "survival");
+        ImmutableContextSet c = ImmutableContextSet.of("server", "lobby", "world", "nether");
+
+        assertEquals(0, a.compareContents(ImmutableContextSet.singleton("server", "lobby")));
+        assertTrue(a.compareContents(b) < 0);
+        assertTrue(b.compareContents(a) > 0);
+
+        // a prefix is ordered before the larger set
+        assertTrue(a.compareContents(c) < 0);
+        assertTrue(c.compareContents(a) > 0);
+        assertTrue(ImmutableContextSet.empty().compareContents(a) < 0);
+
+        // the first differing pair decides the order
+        assertTrue(c.compareContents(b) < 0);
+    }
+}
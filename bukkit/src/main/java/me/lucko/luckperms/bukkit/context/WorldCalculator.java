@@ -26,15 +26,15 @@
 package me.lucko.luckperms.bukkit.context;
 
 import me.lucko.luckperms.api.Contexts;
-import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class WorldCalculator implements ContextCalculator<Player> {
+public class WorldCalculator implements SignallingContextCalculator<Player> {
     private final LuckPermsPlugin plugin;
 
     public WorldCalculator(LuckPermsPlugin plugin) {
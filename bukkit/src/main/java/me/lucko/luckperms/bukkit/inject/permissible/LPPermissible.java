@@ -297,7 +297,13 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public void recalculatePermissions() {
-        // do nothing
+        // this method is called by the superclass constructor, before this instance is initialised
+        if (this.plugin == null) {
+            return;
+        }
+
+        // called when the players op status changes, which forms part of their contexts
+        this.plugin.getContextManager().invalidateCache(this.player);
     }
 
     @Override
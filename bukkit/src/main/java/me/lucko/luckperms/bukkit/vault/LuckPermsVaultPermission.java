@@ -415,8 +415,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
 
             // invalidate caches - they have potentially been affected by
             // this change.
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+            this.plugin.getInheritanceHandler().invalidateInheritorCaches(g);
 
             // we don't need to join this call - the save operation
             // can happen in the background.
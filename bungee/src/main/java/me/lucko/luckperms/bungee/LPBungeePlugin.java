@@ -138,7 +138,10 @@ public class LPBungeePlugin extends AbstractLuckPermsPlugin {
     @Override
     protected void setupContextManager() {
         this.contextManager = new BungeeContextManager(this);
-        this.contextManager.registerCalculator(new BackendServerCalculator(this));
+
+        BackendServerCalculator serverCalculator = new BackendServerCalculator(this);
+        this.contextManager.registerCalculator(serverCalculator);
+        this.bootstrap.getProxy().getPluginManager().registerListener(this.bootstrap, serverCalculator);
 
         if (this.bootstrap.getProxy().getPluginManager().getPlugin("RedisBungee") != null) {
             this.contextManager.registerStaticCalculator(new RedisBungeeCalculator());
@@ -162,7 +165,7 @@ public class LPBungeePlugin extends AbstractLuckPermsPlugin {
 
     @Override
     protected void registerHousekeepingTasks() {
-        this.bootstrap.getScheduler().asyncRepeating(new ExpireTemporaryTask(this), 3, TimeUnit.SECONDS);
+        this.bootstrap.getScheduler().asyncRepeating(new ExpireTemporaryTask(this), 1, TimeUnit.SECONDS);
         this.bootstrap.getScheduler().asyncRepeating(new CacheHousekeepingTask(this), 2, TimeUnit.MINUTES);
     }
 
@@ -26,24 +26,28 @@
 package me.lucko.luckperms.bungee.context;
 
 import me.lucko.luckperms.api.Contexts;
-import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
+import me.lucko.luckperms.bungee.LPBungeePlugin;
 import me.lucko.luckperms.common.config.ConfigKeys;
-import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class BackendServerCalculator implements ContextCalculator<ProxiedPlayer> {
+public class BackendServerCalculator implements SignallingContextCalculator<ProxiedPlayer>, Listener {
 
     private static String getServer(ProxiedPlayer player) {
         return player.getServer() == null ? null : (player.getServer().getInfo() == null ? null : player.getServer().getInfo().getName().toLowerCase());
     }
 
-    private final LuckPermsPlugin plugin;
+    private final LPBungeePlugin plugin;
 
-    public BackendServerCalculator(LuckPermsPlugin plugin) {
+    public BackendServerCalculator(LPBungeePlugin plugin) {
         this.plugin = plugin;
     }
 
@@ -57,4 +61,9 @@ public class BackendServerCalculator implements ContextCalculator<ProxiedPlayer>
 
         return accumulator;
     }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerSwitch(ServerSwitchEvent e) {
+        this.plugin.getContextManager().invalidateCache(e.getPlayer());
+    }
 }
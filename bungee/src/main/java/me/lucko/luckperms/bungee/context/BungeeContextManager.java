@@ -32,6 +32,7 @@ import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.bungee.LPBungeePlugin;
 import me.lucko.luckperms.common.context.ContextManager;
+import me.lucko.luckperms.common.context.ContextsCache;
 import me.lucko.luckperms.common.context.ContextsSupplier;
 
 import net.md_5.bungee.api.connection.ProxiedPlayer;
@@ -40,9 +41,9 @@ import java.util.concurrent.TimeUnit;
 
 public class BungeeContextManager extends ContextManager<ProxiedPlayer> {
 
-    private final LoadingCache<ProxiedPlayer, Contexts> contextsCache = Caffeine.newBuilder()
-            .expireAfterWrite(50, TimeUnit.MILLISECONDS)
-            .build(this::calculate);
+    private final LoadingCache<ProxiedPlayer, ContextsCache<ProxiedPlayer>> subjectCaches = Caffeine.newBuilder()
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build(key -> new ContextsCache<>(key, this));
 
     public BungeeContextManager(LPBungeePlugin plugin) {
         super(plugin, ProxiedPlayer.class);
@@ -54,41 +55,23 @@ public class BungeeContextManager extends ContextManager<ProxiedPlayer> {
             throw new NullPointerException("subject");
         }
 
-        return new InlineContextsSupplier(subject, this.contextsCache);
-    }
-
-    @Override
-    public ImmutableContextSet getApplicableContext(ProxiedPlayer subject) {
-        return getApplicableContexts(subject).getContexts().makeImmutable();
-    }
-
-    @Override
-    public Contexts getApplicableContexts(ProxiedPlayer subject) {
-        return this.contextsCache.get(subject);
+        return this.subjectCaches.get(subject);
     }
 
     @Override
     public void invalidateCache(ProxiedPlayer subject) {
-        this.contextsCache.invalidate(subject);
+        if (subject == null) {
+            throw new NullPointerException("subject");
+        }
+
+        ContextsCache<ProxiedPlayer> cache = this.subjectCaches.getIfPresent(subject);
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     @Override
     public Contexts formContexts(ProxiedPlayer subject, ImmutableContextSet contextSet) {
         return formContexts(contextSet);
     }
-
-    private static final class InlineContextsSupplier implements ContextsSupplier {
-        private final ProxiedPlayer key;
-        private final LoadingCache<ProxiedPlayer, Contexts> contextsCache;
-
-        private InlineContextsSupplier(ProxiedPlayer key, LoadingCache<ProxiedPlayer, Contexts> contextsCache) {
-            this.key = key;
-            this.contextsCache = contextsCache;
-        }
-
-        @Override
-        public Contexts getContexts() {
-            return this.contextsCache.get(this.key);
-        }
-    }
 }
@@ -29,11 +29,12 @@ import com.imaginarycode.minecraft.redisbungee.RedisBungee;
 import com.imaginarycode.minecraft.redisbungee.RedisBungeeAPI;
 
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
 import me.lucko.luckperms.api.context.StaticContextCalculator;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class RedisBungeeCalculator implements StaticContextCalculator {
+public class RedisBungeeCalculator implements StaticContextCalculator, SignallingContextCalculator<Object> {
     private static final String PROXY_KEY = "proxy";
 
     @Override
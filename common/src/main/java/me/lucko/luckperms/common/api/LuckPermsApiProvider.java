@@ -32,6 +32,7 @@ import me.lucko.luckperms.api.MessagingService;
 import me.lucko.luckperms.api.NodeFactory;
 import me.lucko.luckperms.api.Storage;
 import me.lucko.luckperms.api.UuidCache;
+import me.lucko.luckperms.api.caching.CacheStatistics;
 import me.lucko.luckperms.api.context.ContextManager;
 import me.lucko.luckperms.api.event.EventBus;
 import me.lucko.luckperms.api.manager.GroupManager;
@@ -41,6 +42,7 @@ import me.lucko.luckperms.api.messenger.MessengerProvider;
 import me.lucko.luckperms.api.metastacking.MetaStackFactory;
 import me.lucko.luckperms.api.platform.PlatformInfo;
 import me.lucko.luckperms.common.api.implementation.ApiActionLogger;
+import me.lucko.luckperms.common.api.implementation.ApiCacheStatistics;
 import me.lucko.luckperms.common.api.implementation.ApiContextManager;
 import me.lucko.luckperms.common.api.implementation.ApiGroupManager;
 import me.lucko.luckperms.common.api.implementation.ApiMessagingService;
@@ -50,6 +52,7 @@ import me.lucko.luckperms.common.api.implementation.ApiPlatformInfo;
 import me.lucko.luckperms.common.api.implementation.ApiTrackManager;
 import me.lucko.luckperms.common.api.implementation.ApiUserManager;
 import me.lucko.luckperms.common.api.implementation.NoopUuidCache;
+import me.lucko.luckperms.common.cacheddata.CachedDataStatistics;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.LuckPermsMessagingService;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -160,6 +163,18 @@ public class LuckPermsApiProvider implements LuckPermsApi {
         return this.plugin.getPermissionRegistry().rootAsList();
     }
 
+    @Override
+    public @NonNull CacheStatistics getPermissionDataCacheStatistics() {
+        CachedDataStatistics statistics = this.plugin.getCachedDataStatistics();
+        return new ApiCacheStatistics(statistics.getPermissionStats(), statistics.getPermissionEntryCount());
+    }
+
+    @Override
+    public @NonNull CacheStatistics getMetaDataCacheStatistics() {
+        CachedDataStatistics statistics = this.plugin.getCachedDataStatistics();
+        return new ApiCacheStatistics(statistics.getMetaStats(), statistics.getMetaEntryCount());
+    }
+
     @Override
     public @NonNull NodeFactory getNodeFactory() {
         return ApiNodeFactory.INSTANCE;
@@ -119,4 +119,9 @@ public class ApiContextManager implements me.lucko.luckperms.api.context.Context
         Objects.requireNonNull(subject, "subject");
         this.handle.invalidateCache(checkType(subject));
     }
+
+    @Override
+    public void invalidateCaches() {
+        this.handle.invalidateCaches();
+    }
 }
@@ -55,6 +55,7 @@ import me.lucko.luckperms.common.util.ImmutableCollectors;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -275,6 +276,13 @@ public class ApiPermissionHolder implements me.lucko.luckperms.api.PermissionHol
         return this.handle.unsetTransientPermission(node);
     }
 
+    @Override
+    public @NonNull DataMutateResult setPermissions(@NonNull Collection<? extends Node> toSet, @NonNull Collection<? extends Node> toUnset) {
+        Objects.requireNonNull(toSet, "toSet");
+        Objects.requireNonNull(toUnset, "toUnset");
+        return this.handle.setPermissions(toSet, toUnset);
+    }
+
     @Override
     public void clearMatching(@NonNull Predicate<Node> test) {
         Objects.requireNonNull(test, "test");
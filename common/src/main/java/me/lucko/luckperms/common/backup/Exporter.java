@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.backup;
 
+import com.google.common.collect.Iterables;
+
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
@@ -48,6 +50,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -208,38 +211,39 @@ public class Exporter implements Runnable {
 
                 AtomicInteger userCount = new AtomicInteger(0);
 
-                // iterate through each user.
-                for (UUID uuid : users) {
-                    // register a task for the user, and schedule it's execution with the pool
+                // iterate through the users in batches, so each batch can be loaded from the storage at once.
+                for (List<UUID> batch : Iterables.partition(users, 100)) {
+                    // register a task for the batch, and schedule it's execution with the pool
                     futures.add(CompletableFuture.runAsync(() -> {
-                        // actually export the user. this output will be fed to the writing function when we have all of the user's data.
-                        List<String> output = new ArrayList<>();
-
-                        User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                        output.add("# Export user: " + user.getUuid().toString() + " - " + user.getName().orElse("unknown username"));
+                        Map<UUID, User> loaded = ds.loadUsers(new HashSet<>(batch)).join();
+                        for (User user : loaded.values()) {
+                            // actually export the user. this output will be fed to the writing function when we have all of the user's data.
+                            List<String> output = new ArrayList<>();
+                            output.add("# Export user: " + user.getUuid().toString() + " - " + user.getName().orElse("unknown username"));
+
+                            boolean inDefault = false;
+                            for (Node node : user.enduringData().immutable().values()) {
+                                if (node.isGroupNode() && node.getGroupName().equalsIgnoreCase(NodeFactory.DEFAULT_GROUP_NAME)) {
+                                    inDefault = true;
+                                    continue;
+                                }
+
+                                output.add("/lp " + NodeFactory.nodeAsCommand(node, user.getUuid().toString(), HolderType.USER, true, false));
+                            }
 
-                        boolean inDefault = false;
-                        for (Node node : user.enduringData().immutable().values()) {
-                            if (node.isGroupNode() && node.getGroupName().equalsIgnoreCase(NodeFactory.DEFAULT_GROUP_NAME)) {
-                                inDefault = true;
-                                continue;
+                            if (!user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME).equalsIgnoreCase(NodeFactory.DEFAULT_GROUP_NAME)) {
+                                output.add("/lp user " + user.getUuid().toString() + " switchprimarygroup " + user.getPrimaryGroup().getStoredValue().get());
                             }
 
-                            output.add("/lp " + NodeFactory.nodeAsCommand(node, user.getUuid().toString(), HolderType.USER, true, false));
-                        }
+                            if (!inDefault) {
+                                output.add("/lp user " + user.getUuid().toString() + " parent remove default");
+                            }
 
-                        if (!user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME).equalsIgnoreCase(NodeFactory.DEFAULT_GROUP_NAME)) {
-                            output.add("/lp user " + user.getUuid().toString() + " switchprimarygroup " + user.getPrimaryGroup().getStoredValue().get());
-                        }
+                            this.plugin.getUserManager().cleanup(user);
+                            writeFunction.accept(output);
 
-                        if (!inDefault) {
-                            output.add("/lp user " + user.getUuid().toString() + " parent remove default");
+                            userCount.incrementAndGet();
                         }
-
-                        this.plugin.getUserManager().cleanup(user);
-                        writeFunction.accept(output);
-
-                        userCount.incrementAndGet();
                     }, executor));
                 }
 
@@ -25,9 +25,11 @@
 
 package me.lucko.luckperms.common.cacheddata;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 
 import me.lucko.luckperms.api.ChatMetaType;
 import me.lucko.luckperms.api.Contexts;
@@ -37,19 +39,24 @@ import me.lucko.luckperms.api.caching.MetaContexts;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.cacheddata.type.MetaCache;
 import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.cacheddata.type.SharedPermissionData;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.metastacking.SimpleMetaStack;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract implementation of {@link CachedData}.
@@ -61,26 +68,82 @@ public abstract class AbstractCachedData implements CachedData {
      */
     private final LuckPermsPlugin plugin;
     
+    /**
+     * How values in the caches are referenced
+     */
+    private final ValueReferenceStrength valueReferences;
+
     /**
      * The cache used for {@link PermissionCache} instances.
      */
-    private final AsyncLoadingCache<Contexts, PermissionCache> permission = Caffeine.newBuilder()
-            .expireAfterAccess(2, TimeUnit.MINUTES)
-            .buildAsync(new PermissionCacheLoader());
+    private final LoadingCache<Contexts, PermissionCache> permission;
 
     /**
      * The cache used for {@link MetaCache} instances.
      */
-    private final AsyncLoadingCache<MetaContexts, MetaCache> meta = Caffeine.newBuilder()
-            .expireAfterAccess(2, TimeUnit.MINUTES)
-            .buildAsync(new MetaCacheLoader());
+    private final LoadingCache<MetaContexts, MetaCache> meta;
+
+    /**
+     * Caches the most recent {@link PermissionCache} lookups.
+     */
+    private final LookasideCache<Contexts, PermissionCache> permissionLookaside;
 
-    // cache the most recent lookup.
-    private RecentPermissionData recentPermissionData = null;
-    private RecentMetaData recentMetaData = null;
+    /**
+     * Caches the most recent {@link MetaCache} lookups.
+     */
+    private final LookasideCache<MetaContexts, MetaCache> metaLookaside;
+
+    /**
+     * The version of the holders permissions, incremented each time the loaded
+     * {@link PermissionCache}s are updated in place.
+     */
+    private final AtomicLong permissionVersion = new AtomicLong();
 
     public AbstractCachedData(LuckPermsPlugin plugin) {
         this.plugin = plugin;
+        this.valueReferences = plugin.getConfiguration().get(ConfigKeys.CACHED_DATA_VALUE_REFERENCES);
+
+        CachedDataStatistics statistics = plugin.getCachedDataStatistics();
+        this.permission = newCacheBuilder(statistics.getPermissionStatsCounter())
+                .removalListener(this::onPermissionCacheRemoval)
+                .build(new PermissionCacheLoader());
+        this.meta = newCacheBuilder(statistics.getMetaStatsCounter())
+                .build(new MetaCacheLoader());
+
+        this.permissionLookaside = new LookasideCache<>(this::getPermissionCache, statistics.getPermissionStatsCounter());
+        this.metaLookaside = new LookasideCache<>(this.meta::get, statistics.getMetaStatsCounter());
+    }
+
+    /**
+     * Creates a cache builder according to the configured cache policy.
+     *
+     * @param statsCounter the counter to record stats to
+     * @return the builder
+     */
+    private Caffeine<Object, Object> newCacheBuilder(StatsCounter statsCounter) {
+        LuckPermsConfiguration config = this.plugin.getConfiguration();
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterAccess(config.get(ConfigKeys.CACHED_DATA_EXPIRE_AFTER_ACCESS), TimeUnit.SECONDS)
+                .recordStats(() -> statsCounter);
+
+        int maximumSize = config.get(ConfigKeys.CACHED_DATA_MAXIMUM_SIZE);
+        if (maximumSize > 0) {
+            builder.maximumSize(maximumSize);
+        }
+
+        switch (this.valueReferences) {
+            case SOFT:
+                builder.softValues();
+                break;
+            case WEAK:
+                builder.weakValues();
+                break;
+            default:
+                break;
+        }
+
+        return builder;
     }
 
     public LuckPermsPlugin getPlugin() {
@@ -102,6 +165,16 @@ public abstract class AbstractCachedData implements CachedData {
      */
     protected abstract CalculatorFactory getCalculatorFactory();
 
+    /**
+     * Gets the provider used to share permission data between containers with
+     * identical inputs, or null if the data for this container should not be shared.
+     *
+     * @return the provider, or null
+     */
+    protected @Nullable SharedDataKeyProvider getSharedDataKeyProvider() {
+        return null;
+    }
+
     /**
      * Upgrades the given {@link Contexts} to a {@link MetaContexts} instance using the default settings.
      * 
@@ -126,6 +199,21 @@ public abstract class AbstractCachedData implements CachedData {
      */
     protected abstract Map<String, Boolean> resolvePermissions(Contexts contexts);
 
+    /**
+     * Resolves the values of only the given permissions in the given {@link Contexts}.
+     *
+     * <p>The default implementation resolves the full map, and then filters it.</p>
+     *
+     * @param contexts the contexts, or {@link Contexts#allowAll()}
+     * @param permissions the permissions to resolve
+     * @return the resolved values. permissions which aren't set are not present in the map
+     */
+    protected Map<String, Boolean> resolvePermissions(Contexts contexts, Set<String> permissions) {
+        Map<String, Boolean> values = new HashMap<>(resolvePermissionsIn(contexts));
+        values.keySet().retainAll(permissions);
+        return values;
+    }
+
     /**
      * Resolves the owners meta data according to the specification
      * outlined by {@link FullySatisfiedContexts}.
@@ -152,18 +240,63 @@ public abstract class AbstractCachedData implements CachedData {
     private PermissionCache calculatePermissions(Contexts contexts, PermissionCache data) {
         Objects.requireNonNull(contexts, "contexts");
 
+        // read before resolving, so changes made during the calculation are detected
+        long version = this.permissionVersion.get();
+        data = calculatePermissionsAtVersion(contexts, data);
+        data.updateVersion(version);
+        return data;
+    }
+
+    private PermissionCache calculatePermissionsAtVersion(Contexts contexts, PermissionCache data) {
+        SharedDataKeyProvider keyProvider = getSharedDataKeyProviderIfSupported();
+        if (keyProvider != null) {
+            SharedPermissionDataRegistry registry = keyProvider.getRegistry();
+            Object key = keyProvider.getKey(contexts, registry.getVersion());
+            CacheMetadata metadata = getMetadataForContexts(contexts);
+            SharedPermissionData shared = registry.acquire(key, k -> {
+                SharedPermissionData created = new SharedPermissionData(registry, k, contexts, metadata, getCalculatorFactory());
+                created.setPermissions(resolvePermissionsIn(contexts));
+                return created;
+            });
+
+            if (data == null) {
+                return new PermissionCache(contexts, metadata, shared);
+            }
+            data.setData(shared);
+            return data;
+        }
+
         if (data == null) {
             CacheMetadata metadata = getMetadataForContexts(contexts);
             data = new PermissionCache(contexts, metadata, getCalculatorFactory());
         }
 
+        data.setPermissions(resolvePermissionsIn(contexts));
+        return data;
+    }
+
+    /**
+     * Gets the {@link #getSharedDataKeyProvider() key provider}, if data can be
+     * shared with the configured cache policy.
+     *
+     * <p>Shared data is released when it is removed from the cache, which can't happen
+     * if the value has already been collected, so sharing requires strong references.</p>
+     *
+     * @return the key provider, or null
+     */
+    private @Nullable SharedDataKeyProvider getSharedDataKeyProviderIfSupported() {
+        if (this.valueReferences != ValueReferenceStrength.STRONG) {
+            return null;
+        }
+        return getSharedDataKeyProvider();
+    }
+
+    private Map<String, Boolean> resolvePermissionsIn(Contexts contexts) {
         if (contexts == Contexts.allowAll()) {
-            data.setPermissions(resolvePermissions());
+            return resolvePermissions();
         } else {
-            data.setPermissions(resolvePermissions(contexts));
+            return resolvePermissions(contexts);
         }
-
-        return data;
     }
 
     /**
@@ -192,36 +325,39 @@ public abstract class AbstractCachedData implements CachedData {
         return data;
     }
 
+    /**
+     * Gets the {@link PermissionCache} for the given contexts from the cache,
+     * recalculating it if it missed the latest in place update.
+     *
+     * @param contexts the contexts
+     * @return the cache
+     */
+    private PermissionCache getPermissionCache(Contexts contexts) {
+        PermissionCache data = this.permission.get(contexts);
+
+        // the value was still being calculated when the loaded caches were last updated,
+        // so it may have been calculated from the old data & missed the update.
+        // (holders sharing the data have identical inputs, so it can be replaced in place)
+        long version;
+        while (data.getVersion() != (version = this.permissionVersion.get())) {
+            data.getData().setPermissions(resolvePermissionsIn(contexts));
+            data.updateVersion(version);
+        }
+        return data;
+    }
+
     @Override
     public final @NonNull PermissionCache getPermissionData(@NonNull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
 
-        RecentPermissionData recent = this.recentPermissionData;
-        if (recent != null && contexts.equals(recent.contexts)) {
-            return recent.permissionData;
-        }
-
-        PermissionCache data = this.permission.synchronous().get(contexts);
-        this.recentPermissionData = new RecentPermissionData(contexts, data);
-
-        //noinspection ConstantConditions
-        return data;
+        return this.permissionLookaside.get(contexts);
     }
 
     @Override
     public final @NonNull MetaCache getMetaData(@NonNull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
 
-        RecentMetaData recent = this.recentMetaData;
-        if (recent != null && contexts.equals(recent.contexts)) {
-            return recent.metaData;
-        }
-
-        MetaCache data = this.meta.synchronous().get(contexts);
-        this.recentMetaData = new RecentMetaData(contexts, data);
-
-        //noinspection ConstantConditions
-        return data;
+        return this.metaLookaside.get(contexts);
     }
 
     @Override
@@ -251,15 +387,37 @@ public abstract class AbstractCachedData implements CachedData {
     @Override
     public final void recalculatePermissions(@NonNull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.permission.synchronous().refresh(contexts);
-        this.recentPermissionData = null;
+        this.permission.refresh(contexts);
+        this.permissionLookaside.invalidate();
+    }
+
+    /**
+     * Recalculates just the given permissions in each of the loaded {@link PermissionCache}s,
+     * instead of recalculating each cache in full.
+     *
+     * <p>Caches which are still being calculated aren't visited, so the version is
+     * incremented first, and those caches are recalculated in full when next retrieved.</p>
+     *
+     * @param permissions the permissions which may have changed
+     * @param updated the data instances which have already been updated as part of
+     *                this change. Used to avoid updating shared data more than once.
+     */
+    public final void recalculatePermissions(Set<String> permissions, Set<SharedPermissionData> updated) {
+        long version = this.permissionVersion.incrementAndGet();
+        for (PermissionCache cache : this.permission.asMap().values()) {
+            SharedPermissionData data = cache.getData();
+            if (updated.add(data)) {
+                data.updatePermissions(permissions, resolvePermissions(cache.getContexts(), permissions));
+            }
+            cache.updateVersion(version);
+        }
     }
 
     @Override
     public final void recalculateMeta(@NonNull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.synchronous().refresh(contexts);
-        this.recentMetaData = null;
+        this.meta.refresh(contexts);
+        this.metaLookaside.invalidate();
     }
 
     @Override
@@ -273,20 +431,21 @@ public abstract class AbstractCachedData implements CachedData {
         Objects.requireNonNull(contexts, "contexts");
 
         // get the previous value - to use when recalculating
-        CompletableFuture<PermissionCache> previous = this.permission.getIfPresent(contexts);
+        PermissionCache previous = this.permission.getIfPresent(contexts);
 
         // invalidate any previous setting
-        this.permission.synchronous().invalidate(contexts);
-        this.recentPermissionData = null;
-
-        // if the previous value is already calculated, use it when recalculating.
-        PermissionCache value = getIfReady(previous);
-        if (value != null) {
-            return this.permission.get(contexts, c -> calculatePermissions(c, value));
+        this.permission.invalidate(contexts);
+        this.permissionLookaside.invalidate();
+
+        // if a previous value was present, use it when recalculating.
+        // (shared data is acquired from the registry instead of being recalculated
+        // into the previous instance, so there is nothing to reuse)
+        if (previous != null && getSharedDataKeyProviderIfSupported() == null) {
+            return CompletableFuture.supplyAsync(() -> this.permission.get(contexts, c -> calculatePermissions(c, previous)));
         }
 
         // otherwise, just calculate a new value
-        return this.permission.get(contexts);
+        return CompletableFuture.supplyAsync(() -> this.permission.get(contexts));
     }
 
     @Override
@@ -294,20 +453,19 @@ public abstract class AbstractCachedData implements CachedData {
         Objects.requireNonNull(contexts, "contexts");
 
         // get the previous value - to use when recalculating
-        CompletableFuture<MetaCache> previous = this.meta.getIfPresent(contexts);
+        MetaCache previous = this.meta.getIfPresent(contexts);
 
         // invalidate any previous setting
-        this.meta.synchronous().invalidate(contexts);
-        this.recentMetaData = null;
+        this.meta.invalidate(contexts);
+        this.metaLookaside.invalidate();
 
-        // if the previous value is already calculated, use it when recalculating.
-        MetaCache value = getIfReady(previous);
-        if (value != null) {
-            return this.meta.get(contexts, c -> calculateMeta(c, value));
+        // if a previous value was present, use it when recalculating.
+        if (previous != null) {
+            return CompletableFuture.supplyAsync(() -> this.meta.get(contexts, c -> calculateMeta(c, previous)));
         }
 
         // otherwise, just calculate a new value
-        return this.meta.get(contexts);
+        return CompletableFuture.supplyAsync(() -> this.meta.get(contexts));
     }
 
     @Override
@@ -318,64 +476,76 @@ public abstract class AbstractCachedData implements CachedData {
 
     @Override
     public final void recalculatePermissions() {
-        Set<Contexts> keys = this.permission.synchronous().asMap().keySet();
+        Set<Contexts> keys = this.permission.asMap().keySet();
         keys.forEach(this::recalculatePermissions);
     }
 
     @Override
     public final void recalculateMeta() {
-        Set<MetaContexts> keys = this.meta.synchronous().asMap().keySet();
+        Set<MetaContexts> keys = this.meta.asMap().keySet();
         keys.forEach(this::recalculateMeta);
     }
 
     @Override
     public final @NonNull CompletableFuture<Void> reloadPermissions() {
-        Set<Contexts> keys = this.permission.synchronous().asMap().keySet();
+        Set<Contexts> keys = this.permission.asMap().keySet();
         return CompletableFuture.allOf(keys.stream().map(this::reloadPermissions).toArray(CompletableFuture[]::new));
     }
 
     @Override
     public final @NonNull CompletableFuture<Void> reloadMeta() {
-        Set<MetaContexts> keys = this.meta.synchronous().asMap().keySet();
+        Set<MetaContexts> keys = this.meta.asMap().keySet();
         return CompletableFuture.allOf(keys.stream().map(this::reloadMeta).toArray(CompletableFuture[]::new));
     }
 
     @Override
     public final void invalidatePermissions(@NonNull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.permission.synchronous().invalidate(contexts);
-        this.recentPermissionData = null;
+        this.permission.invalidate(contexts);
+        this.permissionLookaside.invalidate();
     }
 
     @Override
     public final void invalidateMeta(@NonNull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.synchronous().invalidate(contexts);
-        this.recentMetaData = null;
+        this.meta.invalidate(contexts);
+        this.metaLookaside.invalidate();
     }
 
     @Override
     public final void invalidateMeta(@NonNull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.synchronous().invalidate(getDefaultMetaContexts(contexts));
-        this.recentMetaData = null;
+        this.meta.invalidate(getDefaultMetaContexts(contexts));
+        this.metaLookaside.invalidate();
     }
 
     @Override
     public final void invalidatePermissions() {
-        this.permission.synchronous().invalidateAll();
-        this.recentPermissionData = null;
+        this.permission.invalidateAll();
+        this.permissionLookaside.invalidate();
     }
 
     @Override
     public final void invalidateMeta() {
-        this.meta.synchronous().invalidateAll();
-        this.recentMetaData = null;
+        this.meta.invalidateAll();
+        this.metaLookaside.invalidate();
     }
 
     @Override
     public final void invalidatePermissionCalculators() {
-        this.permission.synchronous().asMap().values().forEach(PermissionCache::invalidateCache);
+        this.permission.asMap().values().forEach(PermissionCache::invalidateCache);
+    }
+
+    /**
+     * Unregisters the shared data backing the loaded {@link PermissionCache}s, so
+     * it isn't acquired by any other holder.
+     *
+     * <p>The data remains in use by the caches which already hold it.</p>
+     */
+    public final void unregisterSharedData() {
+        for (PermissionCache cache : this.permission.asMap().values()) {
+            cache.getData().unregister();
+        }
     }
 
     public final void invalidate() {
@@ -383,20 +553,55 @@ public abstract class AbstractCachedData implements CachedData {
         invalidateMeta();
     }
 
-    public final void doCacheCleanup() {
-        this.permission.synchronous().cleanUp();
-        this.meta.synchronous().cleanUp();
+    /**
+     * Gets the lookaside cache used for {@link PermissionCache} lookups.
+     *
+     * @return the permission lookaside cache
+     */
+    public final LookasideCache<Contexts, PermissionCache> getPermissionLookaside() {
+        return this.permissionLookaside;
+    }
+
+    /**
+     * Gets the lookaside cache used for {@link MetaCache} lookups.
+     *
+     * @return the meta lookaside cache
+     */
+    public final LookasideCache<MetaContexts, MetaCache> getMetaLookaside() {
+        return this.metaLookaside;
+    }
+
+    /**
+     * Gets the approximate number of entries in the {@link PermissionCache} cache.
+     *
+     * @return the permission cache size
+     */
+    public final long getPermissionCacheSize() {
+        return this.permission.estimatedSize();
+    }
+
+    /**
+     * Gets the approximate number of entries in the {@link MetaCache} cache.
+     *
+     * @return the meta cache size
+     */
+    public final long getMetaCacheSize() {
+        return this.meta.estimatedSize();
     }
 
-    private static boolean isReady(@Nullable CompletableFuture<?> future) {
-        return (future != null) && future.isDone()
-                && !future.isCompletedExceptionally()
-                && (future.join() != null);
+    public final void doCacheCleanup() {
+        this.permission.cleanUp();
+        this.meta.cleanUp();
     }
 
-    /** Returns the current value or null if either not done or failed. */
-    private static <V> V getIfReady(@Nullable CompletableFuture<V> future) {
-        return isReady(future) ? future.join() : null;
+    private void onPermissionCacheRemoval(Contexts contexts, PermissionCache data, RemovalCause cause) {
+        // values are only ever replaced by themselves (see PermissionCacheLoader#reload)
+        if (data != null && cause != RemovalCause.REPLACED) {
+            data.release();
+
+            // the released instance may still be held by the lookaside cache
+            this.permissionLookaside.invalidate();
+        }
     }
 
     private final class PermissionCacheLoader implements CacheLoader<Contexts, PermissionCache> {
@@ -430,24 +635,4 @@ public abstract class AbstractCachedData implements CachedData {
         );
     }
 
-    private static final class RecentPermissionData {
-        final Contexts contexts;
-        final PermissionCache permissionData;
-
-        RecentPermissionData(Contexts contexts, PermissionCache permissionData) {
-            this.contexts = contexts;
-            this.permissionData = permissionData;
-        }
-    }
-
-    private static final class RecentMetaData {
-        final MetaContexts contexts;
-        final MetaCache metaData;
-
-        RecentMetaData(MetaContexts contexts, MetaCache metaData) {
-            this.contexts = contexts;
-            this.metaData = metaData;
-        }
-    }
-
 }
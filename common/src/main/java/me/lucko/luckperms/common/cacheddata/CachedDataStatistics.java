@@ -0,0 +1,119 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+/**
+ * Aggregates statistics for the permission & meta caches of every
+ * {@link AbstractCachedData} instance.
+ *
+ * <p>Statistics are recorded from when the plugin was enabled, and include
+ * data for holders which have since been unloaded.</p>
+ */
+public class CachedDataStatistics {
+    private final LuckPermsPlugin plugin;
+
+    /**
+     * The stats counter shared by all permission caches
+     */
+    private final StatsCounter permissionStats = new ConcurrentStatsCounter();
+
+    /**
+     * The stats counter shared by all meta caches
+     */
+    private final StatsCounter metaStats = new ConcurrentStatsCounter();
+
+    public CachedDataStatistics(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    StatsCounter getPermissionStatsCounter() {
+        return this.permissionStats;
+    }
+
+    StatsCounter getMetaStatsCounter() {
+        return this.metaStats;
+    }
+
+    /**
+     * Gets a snapshot of the statistics for all permission caches.
+     *
+     * @return the permission cache stats
+     */
+    public CacheStats getPermissionStats() {
+        return this.permissionStats.snapshot();
+    }
+
+    /**
+     * Gets a snapshot of the statistics for all meta caches.
+     *
+     * @return the meta cache stats
+     */
+    public CacheStats getMetaStats() {
+        return this.metaStats.snapshot();
+    }
+
+    /**
+     * Gets the approximate number of entries currently held in the
+     * permission caches of loaded users and groups.
+     *
+     * @return the number of permission cache entries
+     */
+    public long getPermissionEntryCount() {
+        long count = 0;
+        for (User user : this.plugin.getUserManager().getAll().values()) {
+            count += user.getCachedData().getPermissionCacheSize();
+        }
+        for (Group group : this.plugin.getGroupManager().getAll().values()) {
+            count += group.getCachedData().getPermissionCacheSize();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the approximate number of entries currently held in the
+     * meta caches of loaded users and groups.
+     *
+     * @return the number of meta cache entries
+     */
+    public long getMetaEntryCount() {
+        long count = 0;
+        for (User user : this.plugin.getUserManager().getAll().values()) {
+            count += user.getCachedData().getMetaCacheSize();
+        }
+        for (Group group : this.plugin.getGroupManager().getAll().values()) {
+            count += group.getCachedData().getMetaCacheSize();
+        }
+        return count;
+    }
+}
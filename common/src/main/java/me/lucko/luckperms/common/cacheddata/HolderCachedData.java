@@ -33,6 +33,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.PermissionHolder;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Holds an easily accessible cache of a holders data in a number of contexts
@@ -69,6 +70,11 @@ public abstract class HolderCachedData<T extends PermissionHolder> extends Abstr
         return this.holder.exportPermissions(contexts, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
     }
 
+    @Override
+    protected Map<String, Boolean> resolvePermissions(Contexts contexts, Set<String> permissions) {
+        return this.holder.exportPermissions(contexts, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND), permissions);
+    }
+
     @Override
     protected void resolveMeta(MetaAccumulator accumulator) {
         this.holder.accumulateMeta(accumulator);
@@ -0,0 +1,175 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A small, fixed size cache which sits in front of the main caches in
+ * {@link AbstractCachedData}, to avoid hashing and searching the main cache
+ * for the few most recently used keys.
+ *
+ * <p>Keys are compared by identity first, and then by equality.</p>
+ *
+ * <p>Entries are only used for a short period after being loaded, so that the
+ * main cache still sees accesses for frequently used keys and doesn't expire them.</p>
+ *
+ * <p>Hits are also recorded to the stats counter of the main cache, so that the
+ * statistics for the main cache include lookups served by this cache. Misses are
+ * recorded by the main cache itself when the value is loaded from it.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class LookasideCache<K, V> {
+    private static final int SIZE = 4; // must be a power of two
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * The entries in the cache
+     */
+    private final AtomicReferenceArray<Entry<K, V>> entries = new AtomicReferenceArray<>(SIZE);
+
+    /**
+     * The index to write the next entry to
+     */
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * The current generation, incremented when the cache is invalidated.
+     * Entries from previous generations are ignored.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The function used to load values which aren't present
+     */
+    private final Function<? super K, ? extends V> loader;
+
+    /**
+     * The stats counter of the main cache
+     */
+    private final StatsCounter statsCounter;
+
+    public LookasideCache(Function<? super K, ? extends V> loader, StatsCounter statsCounter) {
+        this.loader = loader;
+        this.statsCounter = statsCounter;
+    }
+
+    /**
+     * Gets the value for the given key, loading it if the key
+     * isn't present in the cache.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public V get(K key) {
+        // read the generation before loading, so that if the cache is invalidated
+        // whilst the value is loading, the (possibly stale) value won't be used.
+        int generation = this.generation.get();
+        long now = System.nanoTime();
+
+        for (int i = 0; i < SIZE; i++) {
+            Entry<K, V> e = this.entries.get(i);
+            if (e != null && e.key == key && e.isValid(generation, now)) {
+                recordHit();
+                return e.value;
+            }
+        }
+
+        for (int i = 0; i < SIZE; i++) {
+            Entry<K, V> e = this.entries.get(i);
+            if (e != null && e.key.equals(key) && e.isValid(generation, now)) {
+                recordHit();
+                return e.value;
+            }
+        }
+
+        this.misses.increment();
+        V value = this.loader.apply(key);
+
+        int index = this.nextIndex.getAndIncrement() & (SIZE - 1);
+        this.entries.set(index, new Entry<>(key, value, generation, now));
+        return value;
+    }
+
+    private void recordHit() {
+        this.hits.increment();
+        this.statsCounter.recordHits(1);
+    }
+
+    /**
+     * Invalidates all entries in the cache.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of lookups which were served by this cache.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups which had to be loaded.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return this.misses.sum();
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final int generation;
+        private final long loadTime;
+
+        Entry(K key, V value, int generation, long loadTime) {
+            this.key = key;
+            this.value = value;
+            this.generation = generation;
+            this.loadTime = loadTime;
+        }
+
+        boolean isValid(int generation, long now) {
+            return this.generation == generation && now - this.loadTime < MAX_AGE_NANOS;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.cacheddata.type.SharedPermissionData;
+
+/**
+ * Identifies the {@link SharedPermissionData} which the permission caches of
+ * an {@link AbstractCachedData} instance can share with other holders.
+ */
+public interface SharedDataKeyProvider {
+
+    /**
+     * Gets the registry the shared data is held in.
+     *
+     * @return the registry
+     */
+    SharedPermissionDataRegistry getRegistry();
+
+    /**
+     * Gets a key which identifies every input used to resolve permissions in
+     * the given {@link Contexts}.
+     *
+     * @param contexts the contexts
+     * @param version the current registry version, to be included in the key
+     * @return the key
+     */
+    Object getKey(Contexts contexts, long version);
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.cacheddata.type.SharedPermissionData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Interns {@link SharedPermissionData} instances, so that {@link PermissionCache}s
+ * for holders with identical inputs (own nodes, inherited data & contexts) share a
+ * single permission map and calculator.
+ *
+ * <p>When a group changes, the instances used by the users which inherit from it are
+ * {@link SharedPermissionData#unregister() unregistered}, so stale entries are never
+ * reused. Keys also include the registry {@link #getVersion() version}, which is
+ * incremented when all instances are {@link #invalidate() invalidated}.</p>
+ */
+public class SharedPermissionDataRegistry {
+
+    /**
+     * The currently registered instances
+     */
+    private final Map<Object, SharedPermissionData> data = new ConcurrentHashMap<>();
+
+    /**
+     * The current version
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Gets the current version, to be included when forming keys.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Gets an existing instance for the given key, or creates and registers
+     * a new one using the given function.
+     *
+     * <p>The caller holds a reference to the returned instance, which should
+     * later be {@link SharedPermissionData#release() released}.</p>
+     *
+     * @param key the key
+     * @param function the function used to create a new instance
+     * @return the instance
+     */
+    public SharedPermissionData acquire(Object key, Function<Object, SharedPermissionData> function) {
+        SharedPermissionData existing = this.data.get(key);
+        if (existing != null && existing.retain()) {
+            return existing;
+        }
+
+        // calculate outside of the map, then register, unless another instance
+        // was registered in the meantime
+        SharedPermissionData created = function.apply(key);
+        return this.data.compute(key, (k, present) -> present != null && present.retain() ? present : created);
+    }
+
+    /**
+     * Removes a fully released instance from the registry.
+     *
+     * @param data the instance
+     */
+    public void remove(SharedPermissionData data) {
+        this.data.remove(data.getKey(), data);
+    }
+
+    /**
+     * Increments the version and clears all registered instances.
+     *
+     * <p>Instances already held by caches remain valid until released.</p>
+     */
+    public void invalidate() {
+        this.version.incrementAndGet();
+        this.data.clear();
+    }
+
+    /**
+     * Gets the number of currently registered instances.
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.data.size();
+    }
+}
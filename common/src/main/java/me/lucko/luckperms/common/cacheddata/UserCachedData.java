@@ -25,16 +25,24 @@
 
 package me.lucko.luckperms.common.cacheddata;
 
+import com.google.common.collect.ImmutableSetMultimap;
+
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.caching.UserData;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.User;
 
+import java.util.Objects;
+
 /**
  * Holds an easily accessible cache of a user's data in a number of contexts
  */
 public class UserCachedData extends HolderCachedData<User> implements UserData {
 
+    private final SharedDataKeyProvider sharedDataKeyProvider = new SharedKeyProvider();
+
     public UserCachedData(User holder) {
         super(holder);
     }
@@ -43,4 +51,69 @@ public class UserCachedData extends HolderCachedData<User> implements UserData {
     protected CacheMetadata getMetadataForContexts(Contexts contexts) {
         return new CacheMetadata(this, HolderType.USER, this.holder.getPlainDisplayName(), contexts.getContexts());
     }
+
+    @Override
+    protected SharedDataKeyProvider getSharedDataKeyProvider() {
+        return this.sharedDataKeyProvider;
+    }
+
+    private final class SharedKeyProvider implements SharedDataKeyProvider {
+        @Override
+        public SharedPermissionDataRegistry getRegistry() {
+            return getPlugin().getUserManager().getSharedPermissionDataRegistry();
+        }
+
+        @Override
+        public Object getKey(Contexts contexts, long version) {
+            return new SharedKey(
+                    UserCachedData.this.holder.transientData().immutable(),
+                    UserCachedData.this.holder.enduringData().immutable(),
+                    UserCachedData.this.holder.getPrimaryGroup().getStoredValue().orElse(null),
+                    contexts,
+                    version
+            );
+        }
+    }
+
+    /**
+     * Identifies the inputs used to resolve a users permissions.
+     *
+     * <p>The stored primary group is included as it affects the order in which
+     * parent groups of equal weight are inherited.</p>
+     */
+    private static final class SharedKey {
+        private final ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> transientNodes;
+        private final ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> enduringNodes;
+        private final String primaryGroup;
+        private final Contexts contexts;
+        private final long version;
+        private final int hashCode;
+
+        SharedKey(ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> transientNodes, ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> enduringNodes, String primaryGroup, Contexts contexts, long version) {
+            this.transientNodes = transientNodes;
+            this.enduringNodes = enduringNodes;
+            this.primaryGroup = primaryGroup == null ? null : primaryGroup.toLowerCase();
+            this.contexts = contexts;
+            this.version = version;
+            this.hashCode = Objects.hash(transientNodes, enduringNodes, this.primaryGroup, contexts, version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof SharedKey)) return false;
+            SharedKey other = (SharedKey) o;
+            return this.version == other.version &&
+                    this.hashCode == other.hashCode &&
+                    Objects.equals(this.primaryGroup, other.primaryGroup) &&
+                    this.contexts.equals(other.contexts) &&
+                    this.transientNodes.equals(other.transientNodes) &&
+                    this.enduringNodes.equals(other.enduringNodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
 }
@@ -23,17 +23,28 @@
  *  SOFTWARE.
  */
 
-package me.lucko.luckperms.common.calculator.processor;
+package me.lucko.luckperms.common.cacheddata;
 
-import me.lucko.luckperms.api.Tristate;
-import me.lucko.luckperms.common.calculator.result.TristateResult;
+/**
+ * The strength of the references to values held in the
+ * permission & meta caches of {@link AbstractCachedData}.
+ */
+public enum ValueReferenceStrength {
+
+    /**
+     * Values are kept until they expire or are evicted
+     */
+    STRONG,
 
-public class MapProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
-    private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(MapProcessor.class);
+    /**
+     * Values may also be collected by the garbage collector if memory is low
+     */
+    SOFT,
 
-    @Override
-    public TristateResult hasPermission(String permission) {
-        return RESULT_FACTORY.result(Tristate.fromNullableBoolean(this.sourceMap.get(permission)));
-    }
+    /**
+     * Values may also be collected by the garbage collector as soon as they
+     * are no longer otherwise referenced
+     */
+    WEAK
 
 }
@@ -36,9 +36,7 @@ import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Holds cached permissions data for a given context
@@ -51,63 +49,118 @@ public class PermissionCache implements PermissionData {
     private final Contexts contexts;
 
     /**
-     * The raw set of permission strings.
+     * The metadata for this cache
      */
-    private final Map<String, Boolean> permissions;
+    private final CacheMetadata metadata;
 
     /**
-     * An immutable copy of {@link #permissions}
+     * The permissions & calculator backing this cache. May be shared with the
+     * caches of other holders.
      */
-    private final Map<String, Boolean> permissionsUnmodifiable;
+    private volatile SharedPermissionData data;
 
     /**
-     * The calculator instance responsible for resolving the raw permission strings in the permission map.
-     * This calculator will attempt to resolve all regex/wildcard permissions, as well as account for
-     * defaults & attachment permissions (if applicable.)
+     * If the reference to {@link #data} held by this cache has been released
      */
-    private final PermissionCalculator calculator;
+    private boolean released = false;
+
+    /**
+     * The version of the holders permissions which this cache is up to date with
+     */
+    private volatile long version = 0;
 
     public PermissionCache(Contexts contexts, CacheMetadata metadata, CalculatorFactory calculatorFactory) {
-        this.contexts = contexts;
-        this.permissions = new ConcurrentHashMap<>();
-        this.permissionsUnmodifiable = Collections.unmodifiableMap(this.permissions);
+        this(contexts, metadata, new SharedPermissionData(contexts, metadata, calculatorFactory));
+    }
 
-        this.calculator = calculatorFactory.build(contexts, metadata);
-        this.calculator.setSourcePermissions(this.permissions); // Initial setup.
+    public PermissionCache(Contexts contexts, CacheMetadata metadata, SharedPermissionData data) {
+        this.contexts = contexts;
+        this.metadata = metadata;
+        this.data = data;
     }
 
     @Override
     public void invalidateCache() {
-        this.calculator.invalidateCache();
+        this.data.invalidateCache();
+    }
+
+    public void setPermissions(Map<String, Boolean> toApply) {
+        SharedPermissionData data = this.data;
+        if (data.isShared()) {
+            throw new IllegalStateException("Cannot modify shared permission data");
+        }
+        data.setPermissions(toApply);
     }
 
-    private void setPermissionsInternal(Map<String, Boolean> permissions) {
-        this.permissions.clear();
-        this.permissions.putAll(permissions);
-        this.calculator.setSourcePermissions(this.permissions);
-        invalidateCache();
+    /**
+     * Replaces the data backing this cache, releasing the reference held
+     * to the previous instance.
+     *
+     * @param data the new data, which the caller has already obtained a reference to
+     */
+    public synchronized void setData(SharedPermissionData data) {
+        SharedPermissionData previous = this.data;
+        this.data = data;
+        if (!this.released) {
+            previous.release();
+        }
+        this.released = false;
     }
 
-    public void setPermissions(Map<String, Boolean> toApply) {
-        if (!this.permissions.equals(toApply)) {
-            setPermissionsInternal(toApply);
+    /**
+     * Releases the reference held to the data backing this cache.
+     *
+     * <p>The cache remains usable after being released.</p>
+     */
+    public synchronized void release() {
+        if (!this.released) {
+            this.released = true;
+            this.data.release();
+        }
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Records that this cache is up to date with the given version of the
+     * holders permissions, unless it is already up to date with a later one.
+     *
+     * @param version the version
+     */
+    public synchronized void updateVersion(long version) {
+        if (version > this.version) {
+            this.version = version;
         }
     }
 
+    public SharedPermissionData getData() {
+        return this.data;
+    }
+
     public PermissionCalculator getCalculator() {
-        return this.calculator;
+        return this.data.getCalculator();
     }
 
     @Override
     public @NonNull Map<String, Boolean> getImmutableBacking() {
-        return this.permissionsUnmodifiable;
+        return this.data.getPermissions();
     }
 
     public TristateResult getPermissionValue(String permission, PermissionCheckEvent.Origin origin) {
         if (permission == null) {
             throw new NullPointerException("permission");
         }
-        return this.calculator.getPermissionValue(permission, origin);
+
+        // get the result
+        TristateResult result = this.data.getCalculator().getPermissionValue(permission);
+
+        // log this permission lookup to the verbose handler
+        this.metadata.getParentContainer().getPlugin().getVerboseHandler().offerPermissionCheckEvent(origin, this.metadata.getObjectName(), this.metadata.getContext(), permission, result);
+
+        // return the result
+        return result;
     }
 
     @Override
@@ -0,0 +1,191 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata.type;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.cacheddata.CacheMetadata;
+import me.lucko.luckperms.common.cacheddata.SharedPermissionDataRegistry;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the resolved permissions and calculator backing one or more
+ * {@link PermissionCache}s.
+ *
+ * <p>Instances obtained from a {@link SharedPermissionDataRegistry} are shared
+ * between every holder with identical inputs, and are reference counted so they
+ * can be removed from the registry once they are no longer in use.</p>
+ */
+public final class SharedPermissionData {
+
+    /**
+     * The registry this instance is shared through, or null if the instance is private
+     */
+    private final SharedPermissionDataRegistry registry;
+
+    /**
+     * The key this instance is registered under, or null if the instance is private
+     */
+    private final Object key;
+
+    /**
+     * The raw set of permission strings.
+     */
+    private final Map<String, Boolean> permissions;
+
+    /**
+     * An immutable copy of {@link #permissions}
+     */
+    private final Map<String, Boolean> permissionsUnmodifiable;
+
+    /**
+     * The calculator instance responsible for resolving the raw permission strings in the permission map.
+     * This calculator will attempt to resolve all regex/wildcard permissions, as well as account for
+     * defaults & attachment permissions (if applicable.)
+     */
+    private final PermissionCalculator calculator;
+
+    /**
+     * The number of caches currently holding a reference to this instance
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    public SharedPermissionData(Contexts contexts, CacheMetadata metadata, CalculatorFactory calculatorFactory) {
+        this(null, null, contexts, metadata, calculatorFactory);
+    }
+
+    public SharedPermissionData(SharedPermissionDataRegistry registry, Object key, Contexts contexts, CacheMetadata metadata, CalculatorFactory calculatorFactory) {
+        this.registry = registry;
+        this.key = key;
+        this.permissions = new ConcurrentHashMap<>();
+        this.permissionsUnmodifiable = Collections.unmodifiableMap(this.permissions);
+
+        this.calculator = calculatorFactory.build(contexts, metadata);
+        this.calculator.setSourcePermissions(this.permissions); // Initial setup.
+    }
+
+    public boolean isShared() {
+        return this.registry != null;
+    }
+
+    public Object getKey() {
+        return this.key;
+    }
+
+    public PermissionCalculator getCalculator() {
+        return this.calculator;
+    }
+
+    public Map<String, Boolean> getPermissions() {
+        return this.permissionsUnmodifiable;
+    }
+
+    public void invalidateCache() {
+        this.calculator.invalidateCache();
+    }
+
+    public void setPermissions(Map<String, Boolean> toApply) {
+        if (!this.permissions.equals(toApply)) {
+            this.permissions.clear();
+            this.permissions.putAll(toApply);
+            this.calculator.setSourcePermissions(this.permissions);
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Updates the given permissions, without replacing the rest of the map.
+     *
+     * <p>This may be called on shared instances, so should only be used to apply
+     * changes which affect every holder using this instance equally.</p>
+     *
+     * @param permissions the permissions to update
+     * @param values the new values for the permissions. permissions which aren't present are removed
+     */
+    public void updatePermissions(Set<String> permissions, Map<String, Boolean> values) {
+        Set<String> changed = new HashSet<>();
+        for (String permission : permissions) {
+            Boolean value = values.get(permission);
+            Boolean previous = value == null ? this.permissions.remove(permission) : this.permissions.put(permission, value);
+            if (!Objects.equals(previous, value)) {
+                changed.add(permission);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            this.calculator.invalidateCache(changed);
+        }
+    }
+
+    /**
+     * Removes this instance from the registry, so it isn't acquired by any other
+     * holder. Existing references remain valid.
+     */
+    public void unregister() {
+        if (this.registry != null) {
+            this.registry.remove(this);
+        }
+    }
+
+    /**
+     * Attempts to obtain an additional reference to this instance.
+     *
+     * @return true if successful, false if the instance has already been fully released
+     */
+    public boolean retain() {
+        while (true) {
+            int count = this.references.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (this.references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a reference to this instance, removing it from the registry
+     * if no references remain.
+     */
+    public void release() {
+        if (this.references.decrementAndGet() == 0 && this.registry != null) {
+            this.registry.remove(this);
+        }
+    }
+
+    public int getReferenceCount() {
+        return this.references.get();
+    }
+}
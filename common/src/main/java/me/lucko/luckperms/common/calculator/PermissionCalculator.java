@@ -25,20 +25,23 @@
 
 package me.lucko.luckperms.common.calculator;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.util.LoadingMap;
-import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -62,14 +65,25 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     private final ImmutableList<PermissionProcessor> processors;
 
     /**
-     * Loading cache for permission checks
+     * Loading cache for permission checks.
+     *
+     * <p>The cache is bounded in size (using Caffeine's frequency based admission
+     * policy), so lookups for large numbers of dynamic permissions don't cause it
+     * to grow indefinitely.</p>
      */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
+    private final LoadingCache<String, TristateResult> lookupCache;
 
     public PermissionCalculator(LuckPermsPlugin plugin, CacheMetadata metadata, ImmutableList<PermissionProcessor> processors) {
         this.plugin = plugin;
         this.metadata = metadata;
         this.processors = processors;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        int maximumSize = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE);
+        if (maximumSize > 0) {
+            builder.maximumSize(maximumSize);
+        }
+        this.lookupCache = builder.build(this::apply);
     }
 
     /**
@@ -78,18 +92,22 @@ public class PermissionCalculator implements Function<String, TristateResult> {
      * <p>The result is calculated using the calculators backing 'processors'.</p>
      *
      * @param permission the permission to check
-     * @param origin marks where this check originated from
      * @return the result
      */
-    public TristateResult getPermissionValue(String permission, PermissionCheckEvent.Origin origin) {
-        // get the result
-        TristateResult result = this.lookupCache.get(permission);
-
-        // log this permission lookup to the verbose handler
-        this.plugin.getVerboseHandler().offerPermissionCheckEvent(origin, this.metadata.getObjectName(), this.metadata.getContext(), permission, result);
+    public TristateResult getPermissionValue(String permission) {
+        return this.lookupCache.get(permission);
+    }
 
-        // return the result
-        return result;
+    /**
+     * Gets the metadata of the cache this calculator was built for.
+     *
+     * <p>Calculators may be shared between caches with identical data, so this
+     * does not necessarily describe every holder the calculator is used by.</p>
+     *
+     * @return the metadata
+     */
+    public CacheMetadata getMetadata() {
+        return this.metadata;
     }
 
     @Override
@@ -130,10 +148,54 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         return this.processors;
     }
 
+    /**
+     * Gets the hit, miss and eviction statistics for the lookup cache.
+     *
+     * @return the lookup cache stats
+     */
+    public CacheStats getLookupCacheStats() {
+        return this.lookupCache.stats();
+    }
+
+    /**
+     * Gets the approximate number of results currently held in the lookup cache.
+     *
+     * @return the lookup cache size
+     */
+    public long getLookupCacheSize() {
+        return this.lookupCache.estimatedSize();
+    }
+
     public void invalidateCache() {
         for (PermissionProcessor processor : this.processors) {
             processor.invalidate();
         }
-        this.lookupCache.clear();
+        this.lookupCache.invalidateAll();
+    }
+
+    /**
+     * Updates the calculator following a change to some entries in the source map.
+     *
+     * <p>Processors are refreshed using just the changed entries, and only cached
+     * lookups which may have been affected by the change are invalidated.</p>
+     *
+     * @param changedPermissions the permissions which were added, removed or changed
+     */
+    public synchronized void invalidateCache(Set<String> changedPermissions) {
+        for (PermissionProcessor processor : this.processors) {
+            processor.refresh(changedPermissions);
+        }
+        this.lookupCache.asMap().keySet().removeIf(permission -> isAffectedBy(permission.toLowerCase(), changedPermissions));
+    }
+
+    private boolean isAffectedBy(String permission, Set<String> changedPermissions) {
+        for (String changedPermission : changedPermissions) {
+            for (PermissionProcessor processor : this.processors) {
+                if (processor.isAffectedBy(permission, changedPermission)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 }
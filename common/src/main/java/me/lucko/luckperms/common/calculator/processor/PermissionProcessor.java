@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A processor within a {@link PermissionCalculator}.
@@ -62,6 +63,33 @@ public interface PermissionProcessor {
 
     }
 
+    /**
+     * Called after a change has been made to some entries in the source map.
+     *
+     * <p>Processors which are able to should update their state using only the
+     * changed entries. By default, a full {@link #refresh()} is performed.</p>
+     *
+     * @param changedPermissions the permissions which were added, removed or changed
+     */
+    default void refresh(Set<String> changedPermissions) {
+        refresh();
+    }
+
+    /**
+     * Gets whether the result returned by this processor for the given permission
+     * may be affected by a change to another permission in the source map.
+     *
+     * <p>Used by the parent calculator to selectively invalidate cached lookups.
+     * By default, every permission is assumed to be affected.</p>
+     *
+     * @param permission the permission being looked up
+     * @param changedPermission the permission which changed in the source map
+     * @return true if the result may have been affected
+     */
+    default boolean isAffectedBy(String permission, String changedPermission) {
+        return true;
+    }
+
     /**
      * Called after the parent calculator has been invalidated
      */
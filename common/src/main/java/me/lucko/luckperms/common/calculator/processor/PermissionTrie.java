@@ -0,0 +1,243 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.node.model.ImmutableNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable trie of permission segments, compiled from a source permission map.
+ *
+ * <p>Each node in the trie represents a single segment of a permission (the parts
+ * between each {@link ImmutableNode#NODE_SEPARATOR}). Exact, wildcard and root
+ * wildcard matches are all resolved during a single walk over the permission.</p>
+ *
+ * <p>Children are stored in open addressed hash tables, keyed using the same hash
+ * function as {@link String#hashCode()}. This allows each segment to be hashed
+ * and matched directly from the permission string, without allocating any
+ * substrings. The {@link Entry}s returned by {@link #lookup(String)} are all
+ * created when the trie is compiled.</p>
+ */
+public final class PermissionTrie {
+
+    /**
+     * An empty trie
+     */
+    public static final PermissionTrie EMPTY = compile(new HashMap<>(), new HashMap<>(), null);
+
+    /**
+     * Compiles a new trie from the given entries
+     *
+     * @param exactEntries the permissions to match exactly
+     * @param wildcardEntries the wildcard permissions, keyed by the prefix they apply to (without the trailing ".*")
+     * @param rootWildcard the result of the root wildcard, or null if there is none
+     * @return a trie
+     */
+    public static PermissionTrie compile(Map<String, TristateResult> exactEntries, Map<String, TristateResult> wildcardEntries, TristateResult rootWildcard) {
+        Builder root = new Builder();
+        for (Map.Entry<String, TristateResult> e : exactEntries.entrySet()) {
+            root.traverse(e.getKey()).exact = e.getValue();
+        }
+        for (Map.Entry<String, TristateResult> e : wildcardEntries.entrySet()) {
+            root.traverse(e.getKey()).wildcard = e.getValue();
+        }
+        root.wildcard = rootWildcard;
+        return new PermissionTrie(root.build(Entry.EMPTY));
+    }
+
+    private final Node root;
+
+    private PermissionTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Looks up the given permission in the trie.
+     *
+     * @param permission the permission
+     * @return the entry for the permission, never null
+     */
+    public Entry lookup(String permission) {
+        Node node = this.root;
+        int length = permission.length();
+        int start = 0;
+
+        while (true) {
+            // hash the next segment while searching for its end
+            int end = start;
+            int hash = 0;
+            char c;
+            while (end < length && (c = permission.charAt(end)) != ImmutableNode.NODE_SEPARATOR) {
+                hash = 31 * hash + c;
+                end++;
+            }
+
+            Node child = node.child(permission, start, end, hash);
+            if (child == null) {
+                // the permission continues past 'node', so its wildcard (if any) applies
+                return node.miss;
+            }
+
+            if (end == length) {
+                return child.entry;
+            }
+
+            node = child;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * The result of a lookup in the trie
+     */
+    public static final class Entry {
+        private static final Entry EMPTY = new Entry(null, null);
+
+        private final TristateResult exact;
+        private final TristateResult wildcard;
+
+        private Entry(TristateResult exact, TristateResult wildcard) {
+            this.exact = exact;
+            this.wildcard = wildcard;
+        }
+
+        /**
+         * Gets the result of an exact match for the permission
+         *
+         * @return the exact result, or null if there was no match
+         */
+        public TristateResult exact() {
+            return this.exact;
+        }
+
+        /**
+         * Gets the result of the most specific wildcard which matched the permission.
+         *
+         * @return the wildcard result, or null if there was no match
+         */
+        public TristateResult wildcard() {
+            return this.wildcard;
+        }
+    }
+
+    private static final class Node {
+        private final String[] keys;
+        private final Node[] children;
+        private final int mask;
+
+        /** The entry returned when a permission ends at this node */
+        private final Entry entry;
+
+        /** The entry returned when a permission continues past this node, but has no matching child */
+        private final Entry miss;
+
+        Node(String[] keys, Node[] children, int mask, Entry entry, Entry miss) {
+            this.keys = keys;
+            this.children = children;
+            this.mask = mask;
+            this.entry = entry;
+            this.miss = miss;
+        }
+
+        Node child(String permission, int start, int end, int hash) {
+            String[] keys = this.keys;
+            if (keys == null) {
+                return null;
+            }
+
+            int length = end - start;
+            int i = spread(hash) & this.mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == length && permission.regionMatches(start, key, 0, length)) {
+                    return this.children[i];
+                }
+                i = (i + 1) & this.mask;
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new HashMap<>();
+        private TristateResult exact;
+        private TristateResult wildcard;
+
+        Builder traverse(String permission) {
+            Builder node = this;
+            int start = 0;
+            while (true) {
+                int end = permission.indexOf(ImmutableNode.NODE_SEPARATOR, start);
+                if (end == -1) {
+                    return node.children.computeIfAbsent(permission.substring(start), s -> new Builder());
+                }
+                node = node.children.computeIfAbsent(permission.substring(start, end), s -> new Builder());
+                start = end + 1;
+            }
+        }
+
+        /**
+         * Builds this node.
+         *
+         * @param inherited the entry for misses on the parent node, (an entry with
+         *                  no exact result, holding the wildcard inherited from ancestors)
+         * @return the node
+         */
+        Node build(Entry inherited) {
+            Entry entry = this.exact == null ? inherited : new Entry(this.exact, inherited.wildcard);
+            Entry miss = this.wildcard == null ? inherited : new Entry(null, this.wildcard);
+
+            if (this.children.isEmpty()) {
+                return new Node(null, null, 0, entry, miss);
+            }
+
+            // keep the load factor at or below 0.5
+            int size = Integer.highestOneBit(this.children.size()) << 2;
+            int mask = size - 1;
+
+            String[] keys = new String[size];
+            Node[] nodes = new Node[size];
+            for (Map.Entry<String, Builder> e : this.children.entrySet()) {
+                String key = e.getKey();
+                int i = spread(key.hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                nodes[i] = e.getValue().build(miss);
+            }
+            return new Node(keys, nodes, mask, entry, miss);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -34,18 +34,19 @@ import me.lucko.luckperms.common.node.model.NodeTypes;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class RegexProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
 
-    private Map<Pattern, Boolean> regexPermissions = Collections.emptyMap();
+    private Map<Pattern, TristateResult> regexPermissions = Collections.emptyMap();
 
     @Override
     public TristateResult hasPermission(String permission) {
-        for (Map.Entry<Pattern, Boolean> e : this.regexPermissions.entrySet()) {
+        for (Map.Entry<Pattern, TristateResult> e : this.regexPermissions.entrySet()) {
             if (e.getKey().matcher(permission).matches()) {
-                return RESULT_FACTORY.result(Tristate.fromBoolean(e.getValue()), "pattern: " + e.getKey().pattern());
+                return e.getValue();
             }
         }
 
@@ -54,7 +55,7 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
 
     @Override
     public void refresh() {
-        ImmutableMap.Builder<Pattern, Boolean> builder = ImmutableMap.builder();
+        ImmutableMap.Builder<Pattern, TristateResult> builder = ImmutableMap.builder();
         for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
             RegexType regexType = NodeTypes.parseRegexType(e.getKey());
             if (regexType == null) {
@@ -66,8 +67,27 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
                 continue;
             }
 
-            builder.put(pattern, e.getValue());
+            builder.put(pattern, RESULT_FACTORY.result(Tristate.fromBoolean(e.getValue()), "pattern: ", pattern));
         }
         this.regexPermissions = builder.build();
     }
+
+    @Override
+    public void refresh(Set<String> changedPermissions) {
+        for (String changedPermission : changedPermissions) {
+            if (isRegex(changedPermission)) {
+                refresh();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        return isRegex(changedPermission);
+    }
+
+    private static boolean isRegex(String permission) {
+        return permission.startsWith(NodeTypes.REGEX_MARKER_1) || permission.startsWith(NodeTypes.REGEX_MARKER_2);
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A processor which compiles the source map into a {@link PermissionTrie}, and uses
+ * it to resolve exact, wildcard and root wildcard permissions in a single pass.
+ *
+ * <p>As the order of processors is significant, any processors which should be
+ * consulted after an exact match but before wildcards (for example, a
+ * {@link RegexProcessor}) are passed as "intermediates", and are delegated to by
+ * this processor.</p>
+ */
+public class TrieProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
+    private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(TrieProcessor.class);
+
+    public static final String WILDCARD_SUFFIX = ".*";
+    private static final String ROOT_WILDCARD = "*";
+    private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
+
+    private final boolean applyWildcards;
+    private final ImmutableList<PermissionProcessor> intermediates;
+
+    private Map<String, TristateResult> exactEntries = new HashMap<>();
+    private Map<String, TristateResult> wildcardEntries = new HashMap<>();
+    private PermissionTrie trie = PermissionTrie.EMPTY;
+
+    public TrieProcessor(boolean applyWildcards, ImmutableList<PermissionProcessor> intermediates) {
+        this.applyWildcards = applyWildcards;
+        this.intermediates = intermediates;
+    }
+
+    public TrieProcessor(boolean applyWildcards) {
+        this(applyWildcards, ImmutableList.of());
+    }
+
+    @Override
+    public TristateResult hasPermission(String permission) {
+        PermissionTrie.Entry entry = this.trie.lookup(permission);
+
+        TristateResult exact = entry.exact();
+        if (exact != null) {
+            return exact;
+        }
+
+        for (PermissionProcessor processor : this.intermediates) {
+            TristateResult result = processor.hasPermission(permission);
+            if (result.result() != Tristate.UNDEFINED) {
+                return result;
+            }
+        }
+
+        TristateResult wildcard = entry.wildcard();
+        return wildcard != null ? wildcard : TristateResult.UNDEFINED;
+    }
+
+    @Override
+    public void setSource(Map<String, Boolean> sourceMap) {
+        super.setSource(sourceMap);
+        for (PermissionProcessor processor : this.intermediates) {
+            processor.setSource(sourceMap);
+        }
+    }
+
+    @Override
+    public void refresh() {
+        Map<String, TristateResult> exact = new HashMap<>(this.sourceMap.size());
+        Map<String, TristateResult> wildcards = new HashMap<>();
+        for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
+            putEntry(exact, wildcards, e.getKey(), e.getValue());
+        }
+        this.exactEntries = exact;
+        this.wildcardEntries = wildcards;
+        compile();
+
+        for (PermissionProcessor processor : this.intermediates) {
+            processor.refresh();
+        }
+    }
+
+    @Override
+    public void refresh(Set<String> changedPermissions) {
+        // update the entries for the changed permissions only, then recompile.
+        // the trie itself is immutable, but compiling from the prepared entries
+        // is cheap compared to re-reading the whole source map.
+        for (String permission : changedPermissions) {
+            this.exactEntries.remove(permission);
+            if (this.applyWildcards && hasWildcardSuffix(permission)) {
+                this.wildcardEntries.remove(permission.substring(0, permission.length() - 2));
+            }
+
+            Boolean value = this.sourceMap.get(permission);
+            if (value != null) {
+                putEntry(this.exactEntries, this.wildcardEntries, permission, value);
+            }
+        }
+        compile();
+
+        for (PermissionProcessor processor : this.intermediates) {
+            processor.refresh(changedPermissions);
+        }
+    }
+
+    private void putEntry(Map<String, TristateResult> exact, Map<String, TristateResult> wildcards, String key, boolean value) {
+        Tristate state = Tristate.fromBoolean(value);
+        exact.put(key, RESULT_FACTORY.result(state));
+
+        if (this.applyWildcards && hasWildcardSuffix(key)) {
+            String prefix = key.substring(0, key.length() - 2);
+            wildcards.put(prefix, RESULT_FACTORY.result(state, "match: ", prefix));
+        }
+    }
+
+    private void compile() {
+        TristateResult root = null;
+        if (this.applyWildcards) {
+            Tristate state = Tristate.fromNullableBoolean(this.sourceMap.get(ROOT_WILDCARD));
+            if (state == Tristate.UNDEFINED) {
+                state = Tristate.fromNullableBoolean(this.sourceMap.get(ROOT_WILDCARD_WITH_QUOTES));
+            }
+            if (state != Tristate.UNDEFINED) {
+                root = RESULT_FACTORY.result(state, "root");
+            }
+        }
+
+        this.trie = PermissionTrie.compile(this.exactEntries, this.wildcardEntries, root);
+    }
+
+    private static boolean hasWildcardSuffix(String key) {
+        return key.endsWith(WILDCARD_SUFFIX) && key.length() > 2;
+    }
+
+    /**
+     * Gets whether a wildcard lookup for the given permission may be affected by
+     * a change to another permission.
+     *
+     * @param permission the permission being looked up
+     * @param changedPermission the permission which changed
+     * @return true if the lookup may be affected
+     */
+    private static boolean isAffectedByWildcard(String permission, String changedPermission) {
+        if (changedPermission.equals(ROOT_WILDCARD) || changedPermission.equals(ROOT_WILDCARD_WITH_QUOTES)) {
+            return true;
+        }
+        if (!hasWildcardSuffix(changedPermission)) {
+            return false;
+        }
+
+        // compare against the wildcard prefix, including the trailing separator
+        return permission.startsWith(changedPermission.substring(0, changedPermission.length() - 1));
+    }
+
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        if (permission.equals(changedPermission)) {
+            return true;
+        }
+        if (this.applyWildcards && isAffectedByWildcard(permission, changedPermission)) {
+            return true;
+        }
+        for (PermissionProcessor processor : this.intermediates) {
+            if (processor.isAffectedBy(permission, changedPermission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void invalidate() {
+        for (PermissionProcessor processor : this.intermediates) {
+            processor.invalidate();
+        }
+    }
+
+    public ImmutableList<PermissionProcessor> getIntermediates() {
+        return this.intermediates;
+    }
+}
@@ -29,18 +29,23 @@ import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 /**
  * Represents the result of a {@link PermissionCalculator} lookup.
+ *
+ * <p>The cause of a result is only needed for verbose/debug output, so it is stored as a
+ * reference to whatever caused the result, and only converted to a string when requested.</p>
  */
 public final class TristateResult {
 
-    public static final TristateResult UNDEFINED = new TristateResult(Tristate.UNDEFINED, null, null);
+    public static final TristateResult UNDEFINED = new TristateResult(Tristate.UNDEFINED, null, null, null);
 
     public static TristateResult of(Tristate result, Class<? extends PermissionProcessor> processorClass, String cause) {
         if (result == Tristate.UNDEFINED) {
             return UNDEFINED;
         }
-        return new TristateResult(result, processorClass, cause);
+        return new TristateResult(result, processorClass, null, cause);
     }
 
     public static TristateResult of(Tristate result, Class<? extends PermissionProcessor> processorClass) {
@@ -53,12 +58,27 @@ public final class TristateResult {
     
     private final Tristate result;
     private final Class<? extends PermissionProcessor> processorClass;
-    private final String cause;
 
-    private TristateResult(Tristate result, Class<? extends PermissionProcessor> processorClass, String cause) {
+    /**
+     * A description of the cause, prepended to the cause object
+     */
+    private final @Nullable String causeDescription;
+
+    /**
+     * The object which caused the result, e.g. the matched permission
+     */
+    private final @Nullable Object causeObject;
+
+    /**
+     * The cause, lazily formed from the description and object
+     */
+    private String cause = null;
+
+    private TristateResult(Tristate result, Class<? extends PermissionProcessor> processorClass, @Nullable String causeDescription, @Nullable Object causeObject) {
         this.result = result;
         this.processorClass = processorClass;
-        this.cause = cause;
+        this.causeDescription = causeDescription;
+        this.causeObject = causeObject;
     }
 
     public Tristate result() {
@@ -70,7 +90,12 @@ public final class TristateResult {
     }
 
     public String cause() {
-        return this.cause;
+        String cause = this.cause;
+        if (cause == null && this.causeObject != null) {
+            cause = this.causeDescription == null ? this.causeObject.toString() : this.causeDescription + this.causeObject;
+            this.cause = cause;
+        }
+        return cause;
     }
 
     public static final class Factory {
@@ -105,5 +130,21 @@ public final class TristateResult {
             }
             return of(result, this.processorClass, cause);
         }
+
+        /**
+         * Creates a result with a cause formed from the given description and object,
+         * without building the cause unless it is requested.
+         *
+         * @param result the result
+         * @param causeDescription the description of the cause, e.g. "match: "
+         * @param causeObject the object which caused the result
+         * @return the result
+         */
+        public TristateResult result(Tristate result, String causeDescription, Object causeObject) {
+            if (result == Tristate.UNDEFINED) {
+                return UNDEFINED;
+            }
+            return new TristateResult(result, this.processorClass, causeDescription, causeObject);
+        }
     }
 }
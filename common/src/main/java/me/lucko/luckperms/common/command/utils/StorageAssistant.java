@@ -130,8 +130,7 @@ public final class StorageAssistant {
             return;
         }
 
-        plugin.getGroupManager().invalidateAllGroupCaches();
-        plugin.getUserManager().invalidateAllUserCaches();
+        plugin.getInheritanceHandler().invalidateInheritorCaches(group);
 
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
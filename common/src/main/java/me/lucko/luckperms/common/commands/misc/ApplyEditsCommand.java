@@ -41,7 +41,6 @@ import me.lucko.luckperms.common.command.utils.StorageAssistant;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
-import me.lucko.luckperms.common.model.NodeMapType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.node.model.NodeDataContainer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -130,7 +129,7 @@ public class ApplyEditsCommand extends SingleCommand {
             return false;
         }
 
-        holder.setNodes(NodeMapType.ENDURING, after);
+        holder.setPermissions(diffAdded, diffRemoved);
 
         for (Node n : diffAdded) {
             ExtendedLogEntry.build().actor(sender).acted(holder)
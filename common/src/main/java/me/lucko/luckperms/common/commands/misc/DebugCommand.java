@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.LookupSetting;
 import me.lucko.luckperms.api.caching.MetaContexts;
@@ -32,9 +34,11 @@ import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.StaticContextCalculator;
 import me.lucko.luckperms.api.metastacking.MetaStackDefinition;
 import me.lucko.luckperms.api.metastacking.MetaStackElement;
+import me.lucko.luckperms.common.cacheddata.LookasideCache;
 import me.lucko.luckperms.common.cacheddata.type.MetaCache;
 import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieProcessor;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -206,6 +210,10 @@ public class DebugCommand extends SingleCommand {
                         }
                         return obj;
                     })
+                    .add("lookasideCaches", new JObject()
+                            .add("permissions", serializeLookasideCache(user.getCachedData().getPermissionLookaside()))
+                            .add("meta", serializeLookasideCache(user.getCachedData().getMetaLookaside()))
+                    )
             );
         }
         ret.add("players", playerArray);
@@ -232,11 +240,30 @@ public class DebugCommand extends SingleCommand {
                     JArray processors = new JArray();
                     for (PermissionProcessor processor : permissionData.getCalculator().getProcessors()) {
                         processors.add(processor.getClass().getName());
+                        if (processor instanceof TrieProcessor) {
+                            for (PermissionProcessor intermediate : ((TrieProcessor) processor).getIntermediates()) {
+                                processors.add(intermediate.getClass().getName());
+                            }
+                        }
                     }
                     return processors;
+                })
+                .add("lookupCache", () -> {
+                    CacheStats stats = permissionData.getCalculator().getLookupCacheStats();
+                    return new JObject()
+                            .add("size", permissionData.getCalculator().getLookupCacheSize())
+                            .add("hits", stats.hitCount())
+                            .add("misses", stats.missCount())
+                            .add("evictions", stats.evictionCount());
                 });
     }
 
+    private static JObject serializeLookasideCache(LookasideCache<?, ?> cache) {
+        return new JObject()
+                .add("hits", cache.hitCount())
+                .add("misses", cache.missCount());
+    }
+
     private static JObject serializeMetaData(MetaCache metaData) {
         return new JObject()
                 .add("prefix", metaData.getPrefix(MetaCheckEvent.Origin.INTERNAL))
@@ -25,7 +25,10 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.cacheddata.CachedDataStatistics;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -75,9 +78,25 @@ public class InfoCommand extends SingleCommand {
                 plugin.getTrackManager().getAll().size()
         );
 
+        CachedDataStatistics cachedDataStatistics = plugin.getCachedDataStatistics();
+        CacheStats permissionStats = cachedDataStatistics.getPermissionStats();
+        CacheStats metaStats = cachedDataStatistics.getMetaStats();
+        Message.INFO_CACHED_DATA.send(sender,
+                cachedDataStatistics.getPermissionEntryCount(),
+                formatHitRate(permissionStats),
+                permissionStats.evictionCount(),
+                cachedDataStatistics.getMetaEntryCount(),
+                formatHitRate(metaStats),
+                metaStats.evictionCount()
+        );
+
         return CommandResult.SUCCESS;
     }
 
+    private static String formatHitRate(CacheStats stats) {
+        return String.format("%.1f", stats.hitRate() * 100);
+    }
+
     private static String formatValue(String value) {
         if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
             return MessageUtils.formatBoolean(Boolean.parseBoolean(value));
@@ -96,6 +96,9 @@ public class AbstractConfiguration implements LuckPermsConfiguration {
         this.adapter.reload();
         load();
 
+        // the contexts provided by the static & platform calculators may have changed
+        getPlugin().getContextManager().invalidateCaches();
+
         getPlugin().getEventFactory().handleConfigReload();
     }
 
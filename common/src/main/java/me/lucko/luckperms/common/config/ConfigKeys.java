@@ -33,6 +33,7 @@ import me.lucko.luckperms.api.TemporaryMergeBehaviour;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.metastacking.DuplicateRemovalFunction;
 import me.lucko.luckperms.api.metastacking.MetaStackDefinition;
+import me.lucko.luckperms.common.cacheddata.ValueReferenceStrength;
 import me.lucko.luckperms.common.command.utils.ArgumentParser;
 import me.lucko.luckperms.common.defaultassignments.AssignmentRule;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
@@ -247,6 +248,44 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLY_SPONGE_DEFAULT_SUBJECTS = enduringKey(booleanKey("apply-sponge-default-subjects", true));
 
+    /**
+     * The maximum number of permission lookup results to cache in each permission calculator.
+     * A value <= 0 will remove the limit.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_SIZE = enduringKey(customKey(c -> c.getInteger("permission-lookup-cache-size", 10000)));
+
+    /**
+     * The maximum number of offline users to keep loaded.
+     * A value < 0 will remove the limit.
+     */
+    public static final ConfigKey<Integer> OFFLINE_USER_CACHE_SIZE = enduringKey(customKey(c -> c.getInteger("offline-user-cache-size", 1000)));
+
+    /**
+     * The maximum number of entries to keep in the permission, meta & inheritance caches of each user and group.
+     * A value <= 0 will remove the limit.
+     */
+    public static final ConfigKey<Integer> CACHED_DATA_MAXIMUM_SIZE = enduringKey(customKey(c -> c.getInteger("cached-data.maximum-size", 50)));
+
+    /**
+     * The number of seconds to keep entries in the permission, meta & inheritance caches after they were last accessed
+     */
+    public static final ConfigKey<Integer> CACHED_DATA_EXPIRE_AFTER_ACCESS = enduringKey(customKey(c -> Math.max(1, c.getInteger("cached-data.expire-after-access", 120))));
+
+    /**
+     * How values in the permission & meta caches should be referenced
+     */
+    public static final ConfigKey<ValueReferenceStrength> CACHED_DATA_VALUE_REFERENCES = enduringKey(customKey(c -> {
+        String value = c.getString("cached-data.value-references", "strong");
+        switch (value.toLowerCase()) {
+            case "soft":
+                return ValueReferenceStrength.SOFT;
+            case "weak":
+                return ValueReferenceStrength.WEAK;
+            default:
+                return ValueReferenceStrength.STRONG;
+        }
+    }));
+
     /**
      * The algorithm LuckPerms should use when traversing the "inheritance tree"
      */
@@ -482,6 +521,12 @@ public final class ConfigKeys {
         return ImmutableMap.copyOf(map);
     }));
 
+    /**
+     * How many milliseconds to buffer user & group saves for before writing them to the storage.
+     * Saves which nothing waits for are delayed by up to this time. A value <= 0 will disable the buffer.
+     */
+    public static final ConfigKey<Integer> SAVE_BUFFER_TIME = enduringKey(customKey(c -> c.getInteger("save-buffer-millis", 250)));
+
     /**
      * The name of the messaging service in use, or "none" if not enabled
      */
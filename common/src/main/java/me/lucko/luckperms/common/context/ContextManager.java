@@ -25,13 +25,18 @@
 
 package me.lucko.luckperms.common.context;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.caching.MetaContexts;
 import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
 import me.lucko.luckperms.api.context.StaticContextCalculator;
 import me.lucko.luckperms.common.buffer.ExpiringCache;
 import me.lucko.luckperms.common.config.ConfigKeys;
@@ -42,6 +47,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Base implementation of {@link ContextManager} which caches content lookups.
@@ -59,6 +65,21 @@ public abstract class ContextManager<T> {
     // caches static context lookups
     private final StaticLookupCache staticLookupCache = new StaticLookupCache();
 
+    // incremented to invalidate the lookup caches of all subjects
+    private final AtomicLong cacheVersion = new AtomicLong();
+
+    // interns calculated contexts, so equal instances can be compared by identity
+    private final Interner<Contexts> contextsInterner = Interners.newWeakInterner();
+
+    // caches the default meta contexts formed from an (interned) contexts instance
+    private final LoadingCache<Contexts, MetaContexts> metaContextsCache = Caffeine.newBuilder()
+            .weakKeys()
+            .build(this::createMetaContexts);
+
+    // if any of the registered calculators don't signal changes, in which case
+    // lookup caches must expire after a short period
+    private volatile boolean cacheExpiryRequired = false;
+
     protected ContextManager(LuckPermsPlugin plugin, Class<T> subjectClass) {
         this.plugin = plugin;
         this.subjectClass = subjectClass;
@@ -156,6 +177,10 @@ public abstract class ContextManager<T> {
      * @return a contexts instance
      */
     public MetaContexts formMetaContexts(Contexts contexts) {
+        return this.metaContextsCache.get(contexts);
+    }
+
+    private MetaContexts createMetaContexts(Contexts contexts) {
         return new MetaContexts(
                 contexts,
                 this.plugin.getConfiguration().get(ConfigKeys.PREFIX_FORMATTING_OPTIONS),
@@ -171,6 +196,11 @@ public abstract class ContextManager<T> {
     public void registerCalculator(ContextCalculator<? super T> calculator) {
         // calculators registered first should have priority (and be checked last.)
         this.calculators.add(0, calculator);
+
+        if (!(calculator instanceof SignallingContextCalculator)) {
+            this.cacheExpiryRequired = true;
+        }
+        invalidateCaches();
     }
 
     /**
@@ -190,6 +220,36 @@ public abstract class ContextManager<T> {
      */
     public abstract void invalidateCache(T subject);
 
+    /**
+     * Invalidates the lookup cache for all subjects, and the static lookup cache
+     */
+    public void invalidateCaches() {
+        this.cacheVersion.incrementAndGet();
+        this.staticLookupCache.invalidate();
+        this.metaContextsCache.invalidateAll();
+    }
+
+    /**
+     * Gets the current version of the subject lookup caches.
+     *
+     * <p>Cached values calculated at an older version are no longer valid.</p>
+     *
+     * @return the cache version
+     */
+    long getCacheVersion() {
+        return this.cacheVersion.get();
+    }
+
+    /**
+     * Gets if subject lookup caches need to expire, as not all registered
+     * calculators will signal changes.
+     *
+     * @return if caches should expire
+     */
+    boolean isCacheExpiryRequired() {
+        return this.cacheExpiryRequired;
+    }
+
     protected Contexts calculate(T subject) {
         MutableContextSet accumulator = MutableContextSet.create();
 
@@ -206,7 +266,7 @@ public abstract class ContextManager<T> {
             }
         }
 
-        return formContexts(subject, accumulator.makeImmutable());
+        return this.contextsInterner.intern(formContexts(subject, accumulator.makeImmutable()));
     }
 
     Contexts calculateStatic() {
@@ -225,7 +285,7 @@ public abstract class ContextManager<T> {
             }
         }
 
-        return formContexts(accumulator.makeImmutable());
+        return this.contextsInterner.intern(formContexts(accumulator.makeImmutable()));
     }
 
     /**
@@ -28,11 +28,7 @@ package me.lucko.luckperms.common.context;
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 public class ContextSetComparator implements Comparator<ImmutableContextSet> {
 
@@ -68,46 +64,13 @@ public class ContextSetComparator implements Comparator<ImmutableContextSet> {
             return result;
         }
 
-        // we *have* to maintain transitivity in this comparator. this may be expensive, but it's necessary, as this
-        // comparator is used in the PermissionHolder nodes treemap
-
-        // in order to have consistent ordering, we have to compare the content of the context sets by ordering the
-        // elements and then comparing which set is greater.
-        List<Map.Entry<String, String>> o1Entries = new ArrayList<>(o1.toSet());
-        List<Map.Entry<String, String>> o2Entries = new ArrayList<>(o2.toSet());
-        o1Entries.sort(STRING_ENTRY_COMPARATOR);
-        o2Entries.sort(STRING_ENTRY_COMPARATOR);
-
-        // size is definitely the same
-        Iterator<Map.Entry<String, String>> it1 = o1Entries.iterator();
-        Iterator<Map.Entry<String, String>> it2 = o2Entries.iterator();
-
-        while (it1.hasNext()) {
-            Map.Entry<String, String> ent1 = it1.next();
-            Map.Entry<String, String> ent2 = it2.next();
-
-            int ret = STRING_ENTRY_COMPARATOR.compare(ent1, ent2);
-            if (ret != 0) {
-                return ret;
-            }
+        // we *have* to maintain transitivity in this comparator, as it is used in the PermissionHolder nodes treemap.
+        // the contexts in an ImmutableContextSet are already sorted, so the sets can be compared element by element.
+        result = o1.compareContents(o2);
+        if (result != 0) {
+            return result;
         }
 
         throw new AssertionError("sets are equal? " + o1 + " - " + o2);
     }
-
-    @SuppressWarnings("StringEquality")
-    private static final Comparator<String> FAST_STRING_COMPARATOR = (o1, o2) -> o1 == o2 ? 0 : o1.compareTo(o2);
-
-    private static final Comparator<Map.Entry<String, String>> STRING_ENTRY_COMPARATOR = (o1, o2) -> {
-        if (o1 == o2) {
-            return 0;
-        }
-
-        int ret = FAST_STRING_COMPARATOR.compare(o1.getKey(), o2.getKey());
-        if (ret != 0) {
-            return ret;
-        }
-
-        return FAST_STRING_COMPARATOR.compare(o1.getValue(), o2.getValue());
-    };
 }
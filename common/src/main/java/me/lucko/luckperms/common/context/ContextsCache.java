@@ -27,41 +27,94 @@ package me.lucko.luckperms.common.context;
 
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
-import me.lucko.luckperms.common.buffer.ExpiringCache;
-
-import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of {@link ContextsSupplier} that caches results.
  *
+ * <p>Values are cached until the cache is invalidated, either for this subject
+ * or for all subjects. If any of the registered calculators don't signal changes,
+ * values also expire roughly every tick.</p>
+ *
  * @param <T> the player type
  */
-public final class ContextsCache<T> extends ExpiringCache<Contexts> implements ContextsSupplier {
+public final class ContextsCache<T> implements ContextsSupplier {
+    private static final long EXPIRY_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+
     private final T subject;
     private final ContextManager<T> contextManager;
 
+    // incremented when the cache is invalidated
+    private final AtomicInteger modCount = new AtomicInteger();
+
+    private volatile Entry entry = null;
+
     public ContextsCache(T subject, ContextManager<T> contextManager) {
-        super(50L, TimeUnit.MILLISECONDS); // expire roughly every tick
         this.subject = subject;
         this.contextManager = contextManager;
     }
 
-    @Override
-    protected @NonNull Contexts supply() {
-        return this.contextManager.calculate(this.subject);
-    }
-
     @Override
     public Contexts getContexts() {
-        return get();
+        int modCount = this.modCount.get();
+        long cacheVersion = this.contextManager.getCacheVersion();
+
+        Entry entry = this.entry;
+        if (entry != null && entry.isValid(modCount, cacheVersion)) {
+            return entry.contexts;
+        }
+
+        synchronized (this) {
+            // recheck for lost race
+            modCount = this.modCount.get();
+            cacheVersion = this.contextManager.getCacheVersion();
+            entry = this.entry;
+            if (entry != null && entry.isValid(modCount, cacheVersion)) {
+                return entry.contexts;
+            }
+
+            // if the cache is invalidated whilst calculating, the stored counts
+            // will be out of date and the entry won't be considered valid.
+            Contexts contexts = this.contextManager.calculate(this.subject);
+            long expiry = this.contextManager.isCacheExpiryRequired() ? System.nanoTime() + EXPIRY_NANOS : Entry.NO_EXPIRY;
+            this.entry = new Entry(contexts, modCount, cacheVersion, expiry);
+            return contexts;
+        }
     }
 
     @Override
     public ImmutableContextSet getContextSet() {
         // this is actually already immutable, but the Contexts method signature returns the interface.
         // using the makeImmutable method is faster than casting
-        return get().getContexts().makeImmutable();
+        return getContexts().getContexts().makeImmutable();
+    }
+
+    public void invalidate() {
+        this.modCount.incrementAndGet();
+    }
+
+    private static final class Entry {
+        private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+        private final Contexts contexts;
+        private final int modCount;
+        private final long cacheVersion;
+        private final long expiry;
+
+        Entry(Contexts contexts, int modCount, long cacheVersion, long expiry) {
+            this.contexts = contexts;
+            this.modCount = modCount;
+            this.cacheVersion = cacheVersion;
+            this.expiry = expiry;
+        }
+
+        boolean isValid(int modCount, long cacheVersion) {
+            if (this.modCount != modCount || this.cacheVersion != cacheVersion) {
+                return false;
+            }
+            return this.expiry == NO_EXPIRY || System.nanoTime() - this.expiry < 0;
+        }
     }
 }
@@ -27,13 +27,14 @@ package me.lucko.luckperms.common.context;
 
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
 import me.lucko.luckperms.api.context.StaticContextCalculator;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class LPStaticContextsCalculator implements StaticContextCalculator {
+public class LPStaticContextsCalculator implements StaticContextCalculator, SignallingContextCalculator<Object> {
     private final LuckPermsConfiguration config;
 
     public LPStaticContextsCalculator(LuckPermsConfiguration config) {
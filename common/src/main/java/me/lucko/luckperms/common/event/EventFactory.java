@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.event;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.Node;
@@ -49,6 +50,7 @@ import me.lucko.luckperms.api.event.log.LogNotifyEvent;
 import me.lucko.luckperms.api.event.log.LogPublishEvent;
 import me.lucko.luckperms.api.event.log.LogReceiveEvent;
 import me.lucko.luckperms.api.event.node.NodeAddEvent;
+import me.lucko.luckperms.api.event.node.NodeBatchMutateEvent;
 import me.lucko.luckperms.api.event.node.NodeClearEvent;
 import me.lucko.luckperms.api.event.node.NodeRemoveEvent;
 import me.lucko.luckperms.api.event.player.PlayerDataSaveEvent;
@@ -103,7 +105,15 @@ public final class EventFactory {
         return this.eventBus;
     }
 
-    private boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+    /**
+     * Gets if an event of the given type has any subscribers.
+     *
+     * <p>Callers can use this to skip collecting the data for events which won't be posted.</p>
+     *
+     * @param eventClass the event type
+     * @return true if the event should be posted
+     */
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
         return this.eventBus.shouldPost(eventClass);
     }
 
@@ -198,6 +208,16 @@ public final class EventFactory {
         post(NodeAddEvent.class, () -> generate(NodeAddEvent.class, getDelegate(target), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after), node));
     }
 
+    public void handleNodeBatchMutate(PermissionHolder target, Collection<? extends Node> before, Collection<? extends Node> after) {
+        post(NodeBatchMutateEvent.class, () -> {
+            ImmutableSet<Node> dataBefore = ImmutableSet.copyOf(before);
+            ImmutableSet<Node> dataAfter = ImmutableSet.copyOf(after);
+            ImmutableSet<Node> added = Sets.difference(dataAfter, dataBefore).immutableCopy();
+            ImmutableSet<Node> removed = Sets.difference(dataBefore, dataAfter).immutableCopy();
+            return generate(NodeBatchMutateEvent.class, getDelegate(target), dataBefore, dataAfter, added, removed);
+        });
+    }
+
     public void handleNodeClear(PermissionHolder target, Collection<? extends Node> before, Collection<? extends Node> after) {
         post(NodeClearEvent.class, () -> generate(NodeClearEvent.class, getDelegate(target), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after)));
     }
@@ -0,0 +1,149 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches values derived from the inheritance tree of a group.
+ *
+ * <p>Values are cached per {@link Contexts} and {@link TraversalAlgorithm}. Each cache has its
+ * own version, which is incremented when the cache is {@link #invalidate() invalidated}. Values
+ * are tagged with the version they were resolved at, and a value is only returned if the version
+ * hasn't changed since, so a value resolved from data which changed whilst it was being resolved
+ * is never returned.</p>
+ *
+ * <p>The number of values kept and how long they are kept for are limited by the same
+ * settings as the permission & meta caches (see {@link ConfigKeys#CACHED_DATA_MAXIMUM_SIZE}).</p>
+ *
+ * @param <T> the value type
+ * @see InheritanceHandler#getInheritanceTree(PermissionHolder, Contexts)
+ * @see InheritanceHandler#getResolvedPermissions(Group, Contexts)
+ */
+public final class InheritanceCache<T> {
+
+    /**
+     * The cached values
+     */
+    private final Cache<Key, Entry<T>> values;
+
+    /**
+     * The current version
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    public InheritanceCache(LuckPermsConfiguration config) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterAccess(config.get(ConfigKeys.CACHED_DATA_EXPIRE_AFTER_ACCESS), TimeUnit.SECONDS);
+
+        int maximumSize = config.get(ConfigKeys.CACHED_DATA_MAXIMUM_SIZE);
+        if (maximumSize > 0) {
+            builder.maximumSize(maximumSize);
+        }
+
+        this.values = builder.build();
+    }
+
+    /**
+     * Gets a cached value, or resolves and caches it if it isn't present or is out of date.
+     *
+     * @param contexts the contexts the value was resolved in, or null if it wasn't contextual
+     * @param algorithm the traversal algorithm
+     * @param supplier the function to resolve the value
+     * @return the value
+     */
+    public T get(@Nullable Contexts contexts, TraversalAlgorithm algorithm, Supplier<T> supplier) {
+        // read the version before resolving, so the value is never considered newer than the data it was resolved from
+        long version = this.version.get();
+
+        Key key = new Key(contexts, algorithm);
+        Entry<T> entry = this.values.getIfPresent(key);
+        if (entry != null && entry.version == version) {
+            return entry.value;
+        }
+
+        T value = supplier.get();
+        this.values.put(key, new Entry<>(value, version));
+        return value;
+    }
+
+    /**
+     * Invalidates all of the cached values.
+     */
+    public void invalidate() {
+        this.version.incrementAndGet();
+        this.values.invalidateAll();
+    }
+
+    private static final class Key {
+        private final @Nullable Contexts contexts;
+        private final TraversalAlgorithm algorithm;
+
+        Key(@Nullable Contexts contexts, TraversalAlgorithm algorithm) {
+            this.contexts = contexts;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(this.contexts, other.contexts) && this.algorithm == other.algorithm;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(this.contexts) + this.algorithm.hashCode();
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long version;
+
+        Entry(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+}
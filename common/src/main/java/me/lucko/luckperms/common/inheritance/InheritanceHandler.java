@@ -25,14 +25,30 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.LookupSetting;
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.nodetype.types.WeightType;
+import me.lucko.luckperms.common.cacheddata.type.SharedPermissionData;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -51,6 +67,11 @@ public class InheritanceHandler {
     private final InheritanceGraph allowAllContextualGraph;
     private final InheritanceGraph globalContextualGraph;
 
+    /**
+     * A reverse index of the inheritance graph
+     */
+    private final InheritanceIndex index = new InheritanceIndex();
+
     public InheritanceHandler(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.nonContextualGraph = new NonContextualGraph(plugin);
@@ -73,6 +94,277 @@ public class InheritanceHandler {
         return new ContextualGraph(this.plugin, contexts);
     }
 
+    public InheritanceIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Invalidates the cached inheritance data of a group which has changed, and of
+     * the groups which (transitively) inherit from it.
+     *
+     * @param group the group which has changed
+     * @param inheritanceChanged if the parents or weight of the group have changed
+     */
+    public void invalidateGroupCaches(Group group, boolean inheritanceChanged) {
+        group.getOwnPermissionsCache().invalidate();
+        group.getResolvedPermissionsCache().invalidate();
+        if (inheritanceChanged) {
+            group.getInheritanceTreeCache().invalidate();
+        }
+        invalidateInheritingGroupCaches(group.getName(), inheritanceChanged);
+    }
+
+    /**
+     * Invalidates the cached inheritance data of the groups which (transitively) inherit
+     * from the group with the given name.
+     *
+     * <p>Used when the group is loaded or unloaded, as parent nodes referring to it can
+     * then be resolved, or can no longer be resolved.</p>
+     *
+     * @param group the name of the group
+     * @param inheritanceChanged if the inheritance trees of the inheriting groups have changed
+     */
+    public void invalidateInheritingGroupCaches(String group, boolean inheritanceChanged) {
+        for (Group inheritor : this.index.getInheritingGroups(group)) {
+            inheritor.getResolvedPermissionsCache().invalidate();
+            if (inheritanceChanged) {
+                inheritor.getInheritanceTreeCache().invalidate();
+            }
+        }
+    }
+
+    /**
+     * Gets the flattened inheritance tree of a holder, in the order defined by the configured
+     * {@link TraversalAlgorithm}.
+     *
+     * <p>The trees of groups are cached. The tree of a user is formed by merging the
+     * trees of its parents.</p>
+     *
+     * @param holder the holder
+     * @param contexts the contexts to resolve inheritance in, or null to ignore contexts
+     * @return the holder and all of the groups it inherits from
+     */
+    public List<PermissionHolder> getInheritanceTree(PermissionHolder holder, @Nullable Contexts contexts) {
+        TraversalAlgorithm algorithm = this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM);
+        InheritanceGraph graph = contexts == null ? getGraph() : getGraph(contexts);
+
+        if (holder.getType().isGroup()) {
+            return getGroupInheritanceTree((Group) holder, graph, contexts, algorithm).getHolders();
+        }
+
+        List<PermissionHolder> parents = ImmutableList.copyOf(graph.successors(holder));
+
+        // a breadth first traversal interleaves the trees of each parent, so their levels are merged
+        if (algorithm == TraversalAlgorithm.BREADTH_FIRST) {
+            List<InheritanceTree> trees = new ArrayList<>(parents.size());
+            for (PermissionHolder parent : parents) {
+                trees.add(getGroupInheritanceTree((Group) parent, graph, contexts, algorithm));
+            }
+            return InheritanceTree.mergeBreadthFirst(holder, trees);
+        }
+
+        Set<PermissionHolder> tree = new LinkedHashSet<>();
+        if (algorithm != TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            tree.add(holder);
+        }
+        for (PermissionHolder parent : parents) {
+            tree.addAll(getGroupInheritanceTree((Group) parent, graph, contexts, algorithm).getHolders());
+        }
+        if (algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            tree.add(holder);
+        }
+        return new ArrayList<>(tree);
+    }
+
+    private static InheritanceTree getGroupInheritanceTree(Group group, InheritanceGraph graph, @Nullable Contexts contexts, TraversalAlgorithm algorithm) {
+        return group.getInheritanceTreeCache().get(contexts, algorithm, () -> {
+            if (algorithm == TraversalAlgorithm.BREADTH_FIRST) {
+                return InheritanceTree.breadthFirst(graph, group);
+            }
+            return InheritanceTree.depthFirst(graph.traverse(algorithm, group));
+        });
+    }
+
+    /**
+     * Gets the permissions resolved from the inheritance tree of a group.
+     *
+     * @param group the group
+     * @param contexts the contexts to resolve inheritance in, or null to ignore contexts
+     * @return the resolved permissions
+     */
+    public ResolvedPermissions getResolvedPermissions(Group group, @Nullable Contexts contexts) {
+        TraversalAlgorithm algorithm = this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM);
+        return group.getResolvedPermissionsCache().get(contexts, algorithm, () -> ResolvedPermissions.resolve(collectNodes(getInheritanceTree(group, contexts), contexts)));
+    }
+
+    /**
+     * Exports the permissions a holder has (including those inherited), converted to lowercase.
+     *
+     * <p>The permissions of groups are cached. The permissions of a user are formed by
+     * combining its own nodes with the cached permissions of its parents.</p>
+     *
+     * @param holder the holder
+     * @param contexts the contexts to resolve inheritance in, or null to ignore contexts
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @return the permissions
+     */
+    public ImmutableMap<String, Boolean> exportPermissions(PermissionHolder holder, @Nullable Contexts contexts, boolean resolveShorthand) {
+        if (holder.getType().isGroup()) {
+            return getResolvedPermissions((Group) holder, contexts).export(resolveShorthand);
+        }
+        return ResolvedPermissions.combine(getPermissionLayers(holder, contexts), resolveShorthand);
+    }
+
+    /**
+     * Exports the values of only the given permissions, which must be lowercase.
+     *
+     * <p>The values are looked up in the same layers as {@link #exportPermissions(PermissionHolder, Contexts, boolean)}
+     * combines, so the cost depends on the number of permissions, not the number of nodes inherited.</p>
+     *
+     * @param holder the holder
+     * @param contexts the contexts to resolve inheritance in, or null to ignore contexts
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @param permissions the permissions to export
+     * @return the values. permissions which aren't set are not present in the map
+     */
+    public Map<String, Boolean> exportPermissions(PermissionHolder holder, @Nullable Contexts contexts, boolean resolveShorthand, Set<String> permissions) {
+        List<ResolvedPermissions> layers;
+        if (holder.getType().isGroup()) {
+            layers = Collections.singletonList(getResolvedPermissions((Group) holder, contexts));
+        } else {
+            layers = getPermissionLayers(holder, contexts);
+        }
+        return ResolvedPermissions.combine(layers, resolveShorthand, permissions);
+    }
+
+    /**
+     * Gets the resolved permissions which combine to form the permissions of a user, in priority order.
+     *
+     * @param holder the holder
+     * @param contexts the contexts to resolve inheritance in, or null to ignore contexts
+     * @return the layers
+     */
+    private List<ResolvedPermissions> getPermissionLayers(PermissionHolder holder, @Nullable Contexts contexts) {
+        TraversalAlgorithm algorithm = this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM);
+        InheritanceGraph graph = contexts == null ? getGraph() : getGraph(contexts);
+        List<PermissionHolder> parents = ImmutableList.copyOf(graph.successors(holder));
+
+        List<ResolvedPermissions> layers = new ArrayList<>();
+        ResolvedPermissions own = ResolvedPermissions.resolve(collectNodes(Collections.singletonList(holder), contexts));
+
+        // a breadth first traversal interleaves the trees of each parent, so the
+        // own permissions of each holder in the tree are combined instead
+        if (algorithm == TraversalAlgorithm.BREADTH_FIRST && parents.size() > 1) {
+            layers.add(own);
+            List<PermissionHolder> tree = getInheritanceTree(holder, contexts);
+            for (PermissionHolder group : tree.subList(1, tree.size())) {
+                layers.add(getOwnPermissions((Group) group, contexts, algorithm));
+            }
+            return layers;
+        }
+
+        if (algorithm != TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            layers.add(own);
+        }
+        for (PermissionHolder parent : parents) {
+            layers.add(getResolvedPermissions((Group) parent, contexts));
+        }
+        if (algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            layers.add(own);
+        }
+        return layers;
+    }
+
+    private static ResolvedPermissions getOwnPermissions(Group group, @Nullable Contexts contexts, TraversalAlgorithm algorithm) {
+        return group.getOwnPermissionsCache().get(contexts, algorithm, () -> ResolvedPermissions.resolve(collectNodes(Collections.singletonList(group), contexts)));
+    }
+
+    /**
+     * Collects the nodes of the given holders which apply in the given contexts.
+     *
+     * @param holders the holders
+     * @param contexts the contexts, or null to ignore contexts
+     * @return the nodes
+     * @see PermissionHolder#getAllEntries(Contexts)
+     */
+    private static List<LocalizedNode> collectNodes(List<PermissionHolder> holders, @Nullable Contexts contexts) {
+        List<LocalizedNode> nodes = new ArrayList<>();
+        for (PermissionHolder holder : holders) {
+            nodes.addAll(contexts == null ? holder.getOwnNodes() : holder.getOwnNodes(contexts.getContexts()));
+        }
+
+        if (contexts == null) {
+            return nodes;
+        }
+        if (!contexts.hasSetting(LookupSetting.INCLUDE_NODES_SET_WITHOUT_SERVER)) {
+            nodes.removeIf(n -> !n.isGroupNode() && !n.isServerSpecific());
+        }
+        if (!contexts.hasSetting(LookupSetting.INCLUDE_NODES_SET_WITHOUT_WORLD)) {
+            nodes.removeIf(n -> !n.isGroupNode() && !n.isWorldSpecific());
+        }
+        return nodes;
+    }
+
+    /**
+     * Unregisters the shared permission data used by the holders which (transitively)
+     * inherit from the given group, as it may have been derived from the group.
+     *
+     * <p>This prevents other users from acquiring the data after the group has changed,
+     * but before the caches of the inheritors have been updated.</p>
+     *
+     * @param group the group which has changed
+     */
+    public void unregisterInheritorSharedData(Group group) {
+        for (PermissionHolder holder : this.index.getInheritors(group)) {
+            holder.getCachedData().unregisterSharedData();
+        }
+    }
+
+    /**
+     * Invalidates the cached data of the given group, and updates the cached
+     * data of all holders which (transitively) inherit from it.
+     *
+     * <p>Where possible, only the permissions which have changed in the group
+     * are recalculated for inheritors.</p>
+     *
+     * @param group the group which has changed
+     */
+    public void invalidateInheritorCaches(Group group) {
+        group.invalidateCachedData();
+
+        Set<PermissionHolder> inheritors = this.index.getInheritors(group);
+        Set<Node> changes = group.drainNodeChanges();
+
+        // changes to parents or weights affect the order every permission is resolved in,
+        // so can't be applied incrementally
+        if (changes == null || changes.stream().anyMatch(n -> n.isGroupNode() || n.getTypeData(WeightType.KEY).isPresent())) {
+            for (PermissionHolder holder : inheritors) {
+                holder.invalidateCachedData();
+            }
+            return;
+        }
+
+        Set<String> permissions = new HashSet<>();
+        boolean metaChanged = false;
+        for (Node node : changes) {
+            permissions.add(node.getPermission().toLowerCase());
+            for (String shorthand : node.resolveShorthand()) {
+                permissions.add(shorthand.toLowerCase());
+            }
+            if (node.isMeta() || node.isPrefix() || node.isSuffix()) {
+                metaChanged = true;
+            }
+        }
+
+        Set<SharedPermissionData> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PermissionHolder holder : inheritors) {
+            holder.getCachedData().recalculatePermissions(permissions, updated);
+            if (metaChanged) {
+                holder.getCachedData().invalidateMeta();
+            }
+        }
+    }
+
     private static final class NonContextualGraph implements InheritanceGraph {
         private final LuckPermsPlugin plugin;
 
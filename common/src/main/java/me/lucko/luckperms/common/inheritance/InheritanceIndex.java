@@ -0,0 +1,223 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableSet;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reverse index of the inheritance graph, mapping each group to the
+ * holders which directly inherit from it.
+ *
+ * <p>Parent groups are indexed regardless of context, so the index may
+ * over-approximate, but never under-approximate, the holders which depend
+ * on a given group.</p>
+ *
+ * <p>Holders are removed from the index by their manager when they are unloaded.</p>
+ */
+public class InheritanceIndex {
+
+    /**
+     * The parent group names of each indexed holder, as of their last update
+     */
+    private final Map<PermissionHolder, Set<String>> parents = new HashMap<>();
+
+    /**
+     * The holders which directly inherit each group
+     */
+    private final Map<String, Set<PermissionHolder>> children = new HashMap<>();
+
+    /**
+     * The groups which directly inherit each group
+     */
+    private final Map<String, Set<Group>> childGroups = new HashMap<>();
+
+    /**
+     * Updates the index with the current parents of the given holder.
+     *
+     * @param holder the holder
+     */
+    public void update(PermissionHolder holder) {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (Node node : holder.getOwnGroupNodes()) {
+            builder.add(node.getGroupName().toLowerCase());
+        }
+        Set<String> current = builder.build();
+
+        synchronized (this) {
+            Set<String> previous = current.isEmpty() ? this.parents.remove(holder) : this.parents.put(holder, current);
+            if (previous == null) {
+                previous = Collections.emptySet();
+            }
+
+            for (String group : previous) {
+                if (!current.contains(group)) {
+                    removeChild(group, holder);
+                }
+            }
+            for (String group : current) {
+                if (!previous.contains(group)) {
+                    addChild(group, holder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the given holder from the index.
+     *
+     * @param holder the holder
+     */
+    public synchronized void remove(PermissionHolder holder) {
+        Set<String> previous = this.parents.remove(holder);
+        if (previous != null) {
+            for (String group : previous) {
+                removeChild(group, holder);
+            }
+        }
+    }
+
+    private void addChild(String group, PermissionHolder holder) {
+        this.children.computeIfAbsent(group, g -> new HashSet<>()).add(holder);
+        if (holder.getType().isGroup()) {
+            this.childGroups.computeIfAbsent(group, g -> new HashSet<>()).add((Group) holder);
+        }
+    }
+
+    private void removeChild(String group, PermissionHolder holder) {
+        removeChild(this.children, group, holder);
+        if (holder.getType().isGroup()) {
+            removeChild(this.childGroups, group, (Group) holder);
+        }
+    }
+
+    private static <T> void removeChild(Map<String, Set<T>> map, String group, T holder) {
+        Set<T> children = map.get(group);
+        if (children != null) {
+            children.remove(holder);
+            if (children.isEmpty()) {
+                map.remove(group);
+            }
+        }
+    }
+
+    /**
+     * Gets the holders which directly inherit from the given group.
+     *
+     * @param group the name of the group
+     * @return the direct children
+     */
+    public synchronized Set<PermissionHolder> getDirectChildren(String group) {
+        Set<PermissionHolder> children = this.children.get(group.toLowerCase());
+        return children == null ? ImmutableSet.of() : ImmutableSet.copyOf(children);
+    }
+
+    /**
+     * Gets all holders which transitively inherit from the given group.
+     *
+     * @param group the group
+     * @return the inheritors, not including the group itself
+     */
+    public synchronized Set<PermissionHolder> getInheritors(Group group) {
+        Set<PermissionHolder> inheritors = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+
+        visited.add(group.getName());
+        queue.add(group.getName());
+
+        String current;
+        while ((current = queue.poll()) != null) {
+            Set<PermissionHolder> children = this.children.get(current);
+            if (children == null) {
+                continue;
+            }
+
+            for (PermissionHolder child : children) {
+                if (child.equals(group)) {
+                    continue;
+                }
+                inheritors.add(child);
+                if (child.getType().isGroup()) {
+                    String name = ((Group) child).getName();
+                    if (visited.add(name)) {
+                        queue.add(name);
+                    }
+                }
+            }
+        }
+
+        return inheritors;
+    }
+
+    /**
+     * Gets all groups which transitively inherit from the group with the given name.
+     *
+     * <p>Unlike {@link #getInheritors(Group)}, only groups are visited, so the cost
+     * doesn't depend on the number of users which inherit from the group.</p>
+     *
+     * @param group the name of the group
+     * @return the inheriting groups, not including the group itself
+     */
+    public synchronized Set<Group> getInheritingGroups(String group) {
+        Set<Group> inheritors = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+
+        String name = group.toLowerCase();
+        visited.add(name);
+        queue.add(name);
+
+        String current;
+        while ((current = queue.poll()) != null) {
+            Set<Group> children = this.childGroups.get(current);
+            if (children == null) {
+                continue;
+            }
+
+            for (Group child : children) {
+                if (visited.add(child.getName())) {
+                    inheritors.add(child);
+                    queue.add(child.getName());
+                }
+            }
+        }
+
+        return inheritors;
+    }
+}
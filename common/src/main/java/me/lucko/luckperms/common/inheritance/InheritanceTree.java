@@ -0,0 +1,167 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The flattened inheritance tree of a group.
+ *
+ * <p>For {@link TraversalAlgorithm#BREADTH_FIRST breadth first} trees, the position each level
+ * of the tree starts at is also recorded. This allows the trees of a holders parents to be
+ * merged to form the tree of the holder, without traversing the graph again.</p>
+ */
+public final class InheritanceTree {
+
+    /**
+     * Creates a tree from the result of a depth first traversal.
+     *
+     * @param holders the holders in the tree
+     * @return the tree
+     */
+    public static InheritanceTree depthFirst(Iterable<? extends PermissionHolder> holders) {
+        return new InheritanceTree(ImmutableList.copyOf(holders), null);
+    }
+
+    /**
+     * Traverses the graph from the given holder in breadth first order, recording the levels of the tree.
+     *
+     * @param graph the graph
+     * @param root the holder to start from
+     * @return the tree
+     */
+    public static InheritanceTree breadthFirst(InheritanceGraph graph, PermissionHolder root) {
+        List<PermissionHolder> holders = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        Set<PermissionHolder> visited = new HashSet<>();
+
+        holders.add(root);
+        visited.add(root);
+
+        int start = 0;
+        while (start < holders.size()) {
+            levels.add(start);
+            int end = holders.size();
+            for (int i = start; i < end; i++) {
+                for (PermissionHolder successor : graph.successors(holders.get(i))) {
+                    if (visited.add(successor)) {
+                        holders.add(successor);
+                    }
+                }
+            }
+            start = end;
+        }
+
+        int[] levelStarts = new int[levels.size()];
+        for (int i = 0; i < levelStarts.length; i++) {
+            levelStarts[i] = levels.get(i);
+        }
+        return new InheritanceTree(ImmutableList.copyOf(holders), levelStarts);
+    }
+
+    /**
+     * Merges the breadth first trees of a holders parents to form the breadth first tree of the holder.
+     *
+     * <p>The nodes at each depth of a breadth first traversal are those discovered by the nodes at the
+     * previous depth, in order. The level at depth n of the holders tree is therefore the concatenation
+     * of the levels at depth n - 1 of its parents trees, in order, without those already visited.</p>
+     *
+     * @param root the holder
+     * @param parents the breadth first trees of the holders parents, in order
+     * @return the flattened tree of the holder
+     */
+    public static List<PermissionHolder> mergeBreadthFirst(PermissionHolder root, List<InheritanceTree> parents) {
+        Set<PermissionHolder> tree = new LinkedHashSet<>();
+        tree.add(root);
+
+        for (int depth = 0; ; depth++) {
+            boolean more = false;
+            for (InheritanceTree parent : parents) {
+                List<PermissionHolder> level = parent.getLevel(depth);
+                if (!level.isEmpty()) {
+                    tree.addAll(level);
+                    more = true;
+                }
+            }
+            if (!more) {
+                break;
+            }
+        }
+
+        return new ArrayList<>(tree);
+    }
+
+    /**
+     * The holders in the tree, in order
+     */
+    private final ImmutableList<PermissionHolder> holders;
+
+    /**
+     * The index each level of the tree starts at, or null if the tree isn't breadth first
+     */
+    private final int[] levels;
+
+    private InheritanceTree(ImmutableList<PermissionHolder> holders, int[] levels) {
+        this.holders = holders;
+        this.levels = levels;
+    }
+
+    /**
+     * Gets the holders in the tree, in order.
+     *
+     * @return the holders
+     */
+    public List<PermissionHolder> getHolders() {
+        return this.holders;
+    }
+
+    /**
+     * Gets the holders at the given depth of a breadth first tree.
+     *
+     * @param depth the depth
+     * @return the holders at the depth, or an empty list if the tree isn't that deep
+     */
+    private List<PermissionHolder> getLevel(int depth) {
+        if (this.levels == null) {
+            throw new IllegalStateException("not a breadth first tree");
+        }
+        if (depth >= this.levels.length) {
+            return Collections.emptyList();
+        }
+        int end = depth + 1 < this.levels.length ? this.levels[depth + 1] : this.holders.size();
+        return this.holders.subList(this.levels[depth], end);
+    }
+}
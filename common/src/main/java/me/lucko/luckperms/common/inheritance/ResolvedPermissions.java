@@ -0,0 +1,169 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.api.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The permissions resolved from an ordered list of nodes, with permissions
+ * converted to lowercase.
+ *
+ * <p>Exact permissions and those expanded from shorthand are kept separately, as exact
+ * permissions take priority over shorthand ones, regardless of where they are inherited from.
+ * This allows the resolved permissions of groups to be combined to form those of an
+ * inheriting holder, without resolving the nodes again.</p>
+ */
+public final class ResolvedPermissions {
+
+    /**
+     * Resolves the permissions of the given nodes. Earlier nodes take priority.
+     *
+     * @param nodes the nodes
+     * @return the resolved permissions
+     */
+    public static ResolvedPermissions resolve(List<? extends Node> nodes) {
+        Map<String, Boolean> exact = new HashMap<>(nodes.size());
+        Map<String, Boolean> shorthand = new HashMap<>();
+
+        for (Node node : nodes) {
+            exact.putIfAbsent(node.getPermission().toLowerCase(), node.getValue());
+        }
+        for (Node node : nodes) {
+            for (String s : node.resolveShorthand()) {
+                shorthand.putIfAbsent(s.toLowerCase(), node.getValue());
+            }
+        }
+
+        return new ResolvedPermissions(ImmutableMap.copyOf(exact), ImmutableMap.copyOf(shorthand));
+    }
+
+    /**
+     * Combines resolved permissions into a single map. Earlier layers take priority.
+     *
+     * @param layers the resolved permissions to combine
+     * @param resolveShorthand if shorthand permissions should be included
+     * @return the combined permissions
+     */
+    public static ImmutableMap<String, Boolean> combine(List<ResolvedPermissions> layers, boolean resolveShorthand) {
+        if (layers.size() == 1) {
+            return layers.get(0).export(resolveShorthand);
+        }
+
+        int size = 0;
+        for (ResolvedPermissions layer : layers) {
+            size += layer.exact.size();
+        }
+
+        Map<String, Boolean> permissions = new HashMap<>(size);
+        for (ResolvedPermissions layer : layers) {
+            layer.exact.forEach(permissions::putIfAbsent);
+        }
+        if (resolveShorthand) {
+            for (ResolvedPermissions layer : layers) {
+                layer.shorthand.forEach(permissions::putIfAbsent);
+            }
+        }
+        return ImmutableMap.copyOf(permissions);
+    }
+
+    /**
+     * Combines the values of only the given permissions from the resolved permissions.
+     * Earlier layers take priority.
+     *
+     * @param layers the resolved permissions to combine
+     * @param resolveShorthand if shorthand permissions should be included
+     * @param permissions the lowercase permissions to combine
+     * @return the combined values. permissions which aren't set are not present in the map
+     */
+    public static Map<String, Boolean> combine(List<ResolvedPermissions> layers, boolean resolveShorthand, Set<String> permissions) {
+        Map<String, Boolean> values = new HashMap<>(permissions.size());
+        for (String permission : permissions) {
+            Boolean value = lookup(layers, permission, false);
+            if (value == null && resolveShorthand) {
+                value = lookup(layers, permission, true);
+            }
+            if (value != null) {
+                values.put(permission, value);
+            }
+        }
+        return values;
+    }
+
+    private static Boolean lookup(List<ResolvedPermissions> layers, String permission, boolean shorthand) {
+        for (ResolvedPermissions layer : layers) {
+            Boolean value = (shorthand ? layer.shorthand : layer.exact).get(permission);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private final ImmutableMap<String, Boolean> exact;
+    private final ImmutableMap<String, Boolean> shorthand;
+
+    /**
+     * The exact permissions, followed by the shorthand ones. Lazily computed
+     */
+    private volatile ImmutableMap<String, Boolean> combined = null;
+
+    private ResolvedPermissions(ImmutableMap<String, Boolean> exact, ImmutableMap<String, Boolean> shorthand) {
+        this.exact = exact;
+        this.shorthand = shorthand;
+        if (shorthand.isEmpty()) {
+            this.combined = exact;
+        }
+    }
+
+    /**
+     * Gets the resolved permissions as a map.
+     *
+     * @param resolveShorthand if shorthand permissions should be included
+     * @return the permissions
+     */
+    public ImmutableMap<String, Boolean> export(boolean resolveShorthand) {
+        if (!resolveShorthand) {
+            return this.exact;
+        }
+
+        ImmutableMap<String, Boolean> combined = this.combined;
+        if (combined == null) {
+            Map<String, Boolean> permissions = new HashMap<>(this.exact);
+            this.shorthand.forEach(permissions::putIfAbsent);
+            combined = ImmutableMap.copyOf(permissions);
+            this.combined = combined;
+        }
+        return combined;
+    }
+
+}
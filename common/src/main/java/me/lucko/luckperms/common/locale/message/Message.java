@@ -228,6 +228,13 @@ public enum Message {
             false
     ),
 
+    INFO_CACHED_DATA(
+            "{PREFIX}&f-  &bCached Data:" + "\n" +
+            "{PREFIX}&f-     &3Permissions: &a{} &7entries, &a{}% &7hit rate, &a{} &7evictions" + "\n" +
+            "{PREFIX}&f-     &3Meta: &a{} &7entries, &a{}% &7hit rate, &a{} &7evictions",
+            false
+    ),
+
     DEBUG_START("&bGenerating debugging output...", true),
     DEBUG_URL("&aDebug data URL:", true),
 
@@ -42,6 +42,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.LogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
@@ -236,6 +237,10 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
                 return;
             }
 
+            // the stored data may have been changed by another server since it was last read
+            this.plugin.getGroupManager().getAll().values().forEach(PermissionHolder::invalidatePersistedNodes);
+            this.plugin.getUserManager().getAll().values().forEach(PermissionHolder::invalidatePersistedNodes);
+
             this.plugin.getSyncTaskBuffer().request();
         } else if (message instanceof UserUpdateMessage) {
             UserUpdateMessage msg = (UserUpdateMessage) message;
@@ -251,7 +256,9 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
                 return;
             }
 
-            this.plugin.getStorage().loadUser(user.getUuid(), null);
+            // a load already in progress may have read the data before the remote change
+            user.invalidatePersistedNodes();
+            this.plugin.getStorage().reloadUser(user.getUuid());
         } else if (message instanceof LogMessage) {
             LogMessage msg = (LogMessage) message;
 
@@ -25,18 +25,34 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.Sets;
+
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.nodetype.types.DisplayNameType;
+import me.lucko.luckperms.api.nodetype.types.WeightType;
 import me.lucko.luckperms.common.api.implementation.ApiGroup;
 import me.lucko.luckperms.common.buffer.Cache;
 import me.lucko.luckperms.common.cacheddata.GroupCachedData;
+import me.lucko.luckperms.common.inheritance.InheritanceCache;
+import me.lucko.luckperms.common.inheritance.InheritanceTree;
+import me.lucko.luckperms.common.inheritance.ResolvedPermissions;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 
 public class Group extends PermissionHolder implements Identifiable<String> {
+    /**
+     * The maximum number of node changes to track before falling back
+     * to a full invalidation of inheritors
+     */
+    private static final int MAX_PENDING_NODE_CHANGES = 100;
+
     private final ApiGroup apiDelegate = new ApiGroup(this);
 
     /**
@@ -54,11 +70,33 @@ public class Group extends PermissionHolder implements Identifiable<String> {
      */
     private final Cache<Optional<String>> displayNameCache = new DisplayNameCache(this);
 
+    /**
+     * Caches the groups flattened inheritance trees
+     */
+    private final InheritanceCache<InheritanceTree> inheritanceTreeCache = new InheritanceCache<>(getPlugin().getConfiguration());
+
+    /**
+     * Caches the permissions resolved from the groups own nodes
+     */
+    private final InheritanceCache<ResolvedPermissions> ownPermissionsCache = new InheritanceCache<>(getPlugin().getConfiguration());
+
+    /**
+     * Caches the permissions resolved from the groups inheritance trees
+     */
+    private final InheritanceCache<ResolvedPermissions> resolvedPermissionsCache = new InheritanceCache<>(getPlugin().getConfiguration());
+
     /**
      * The groups data cache instance
      */
     private final GroupCachedData cachedData;
 
+    /**
+     * The nodes which have been added or removed since changes to the group were
+     * last propagated to its inheritors, or null if too many changes have been made
+     * to track them individually
+     */
+    private Set<Node> pendingNodeChanges = new HashSet<>();
+
     public Group(String name, LuckPermsPlugin plugin) {
         super(plugin);
         this.name = name.toLowerCase();
@@ -74,6 +112,59 @@ public class Group extends PermissionHolder implements Identifiable<String> {
         // invalidate our caches
         this.weightCache.invalidate();
         this.displayNameCache.invalidate();
+
+        // permission data shared between users may have been derived from this group
+        getPlugin().getInheritanceHandler().unregisterInheritorSharedData(this);
+
+        boolean inheritanceChanged = recordNodeChanges();
+        getPlugin().getInheritanceHandler().invalidateGroupCaches(this, inheritanceChanged);
+    }
+
+    /**
+     * Records the nodes which have changed since the last invalidation.
+     *
+     * @return if the parents or weight of the group may have changed
+     */
+    private synchronized boolean recordNodeChanges() {
+        Set<Node> enduringChanges = enduringData().drainChanges();
+        Set<Node> transientChanges = transientData().drainChanges();
+
+        // too many changes to track, so assume anything could have changed
+        if (enduringChanges == null || transientChanges == null) {
+            this.pendingNodeChanges = null;
+            return true;
+        }
+
+        Set<Node> changes = Sets.union(enduringChanges, transientChanges);
+
+        // the parents and weight of a group determine the inheritance trees of it and its inheritors
+        boolean inheritanceChanged = false;
+        for (Node n : changes) {
+            if (n.isGroupNode() || n.getTypeData(WeightType.KEY).isPresent()) {
+                inheritanceChanged = true;
+                break;
+            }
+        }
+
+        if (this.pendingNodeChanges != null) {
+            this.pendingNodeChanges.addAll(changes);
+            if (this.pendingNodeChanges.size() > MAX_PENDING_NODE_CHANGES) {
+                this.pendingNodeChanges = null;
+            }
+        }
+        return inheritanceChanged;
+    }
+
+    /**
+     * Gets the nodes which have been added or removed since the last call to
+     * this method, and resets the pending changes.
+     *
+     * @return the changed nodes, or null if the changes weren't tracked
+     */
+    public synchronized @Nullable Set<Node> drainNodeChanges() {
+        Set<Node> changes = this.pendingNodeChanges;
+        this.pendingNodeChanges = new HashSet<>();
+        return changes;
     }
 
     // name getters
@@ -124,6 +215,18 @@ public class Group extends PermissionHolder implements Identifiable<String> {
         return Optional.empty();
     }
 
+    public InheritanceCache<InheritanceTree> getInheritanceTreeCache() {
+        return this.inheritanceTreeCache;
+    }
+
+    public InheritanceCache<ResolvedPermissions> getOwnPermissionsCache() {
+        return this.ownPermissionsCache;
+    }
+
+    public InheritanceCache<ResolvedPermissions> getResolvedPermissionsCache() {
+        return this.resolvedPermissionsCache;
+    }
+
     public ApiGroup getApiDelegate() {
         return this.apiDelegate;
     }
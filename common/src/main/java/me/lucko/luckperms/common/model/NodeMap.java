@@ -25,37 +25,35 @@
 
 package me.lucko.luckperms.common.model;
 
-import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SortedSetMultimap;
 
 import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.StandardNodeEquality;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
-import me.lucko.luckperms.common.buffer.Cache;
 import me.lucko.luckperms.common.context.ContextSetComparator;
 import me.lucko.luckperms.common.node.comparator.NodeComparator;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
 import me.lucko.luckperms.common.node.model.ImmutableLocalizedNode;
 
-import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Predicate;
 
 /**
@@ -65,11 +63,30 @@ import java.util.function.Predicate;
  * the value. The keys (context sets) are ordered according to their weight {@link ContextSetComparator}, and the values
  * are ordered according to the priority of the node, according to {@link NodeComparator}.</p>
  *
+ * <p>Writes update the bucket for the affected context in place, while holding the lock on this instance. Reads use
+ * an immutable snapshot of the map, which is built when the map is first read after being changed, and is then shared
+ * by all readers until the next change. Any number of writes between reads therefore only cost one rebuild. The group
+ * nodes have a separate snapshot, which is only rebuilt after group nodes are changed.</p>
+ *
+ * <p>The map never contains more than one node which is equal to another (ignoring expiry time and value). These
+ * nodes are also indexed by {@link NodeKey}, so they can be found without scanning the map.</p>
+ *
+ * <p>Temporary nodes are registered with the {@link TemporaryNodeExpiryQueue} as they are added, so the map is
+ * only audited once one of them is due to expire.</p>
+ *
+ * <p>The maps of groups also record the nodes which are added and removed, so the changes can be applied to the
+ * inheritors of the group without comparing the before and after states of the map.</p>
+ *
  * <p>Each holder has two of these maps, one for enduring and transient nodes.</p>
  */
 public final class NodeMap {
-    @SuppressWarnings("Guava")
-    private static final Supplier<SortedSet<LocalizedNode>> VALUE_SET_SUPPLIER = () -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
+    private static final Comparator<ImmutableContextSet> KEY_COMPARATOR = ContextSetComparator.reverse();
+    private static final Comparator<? super LocalizedNode> VALUE_COMPARATOR = NodeComparator.reverse();
+
+    /**
+     * The maximum number of changes to record before they are no longer tracked individually
+     */
+    private static final int MAX_RECORDED_CHANGES = 100;
 
     /**
      * The holder which this map is for
@@ -83,40 +100,109 @@ public final class NodeMap {
      * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
      * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
      * defined in {@link NodeComparator}.</p>
+     *
+     * <p>Only accessed while holding the lock on this instance.</p>
      */
-    private final SortedSetMultimap<ImmutableContextSet, LocalizedNode> map = Multimaps.synchronizedSortedSetMultimap(
-            Multimaps.newSortedSetMultimap(
-                    new ConcurrentSkipListMap<>(ContextSetComparator.reverse()),
-                    VALUE_SET_SUPPLIER
-            )
-    );
+    private final SortedMap<ImmutableContextSet, SortedSet<LocalizedNode>> map = new TreeMap<>(KEY_COMPARATOR);
 
     /**
      * Copy of {@link #map} which only contains group nodes
      * @see Node#isGroupNode()
      */
-    private final SortedSetMultimap<ImmutableContextSet, LocalizedNode> inheritanceMap = Multimaps.synchronizedSortedSetMultimap(
-            Multimaps.newSortedSetMultimap(
-                    new ConcurrentSkipListMap<>(ContextSetComparator.reverse()),
-                    VALUE_SET_SUPPLIER
-            )
-    );
+    private final SortedMap<ImmutableContextSet, SortedSet<LocalizedNode>> inheritanceMap = new TreeMap<>(KEY_COMPARATOR);
 
     /**
-     * A cache which holds an immutable copy of the backing map
+     * Index of the nodes in {@link #map}, keyed by {@link NodeKey}.
+     *
+     * <p>Only accessed while holding the lock on this instance.</p>
      */
-    private final NodeMapCache cache = new NodeMapCache(this);
+    private final Map<NodeKey, LocalizedNode> index = new HashMap<>();
+
+    /**
+     * An immutable copy of {@link #map}, or null if the map has changed since one was last built.
+     */
+    private volatile @Nullable ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> mapSnapshot = ImmutableSetMultimap.of();
+
+    /**
+     * An immutable copy of {@link #inheritanceMap}, or null if the map has changed since one was last built.
+     */
+    private volatile @Nullable ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> inheritanceMapSnapshot = ImmutableSetMultimap.of();
+
+    /**
+     * The earliest expiry time the holder is currently scheduled to be audited at
+     * in the {@link TemporaryNodeExpiryQueue}, or {@link Long#MAX_VALUE} if none.
+     *
+     * <p>Only accessed while holding the lock on this instance.</p>
+     */
+    private long scheduledExpiry = Long.MAX_VALUE;
+
+    /**
+     * If changes to the map are recorded
+     */
+    private final boolean recordChanges;
+
+    /**
+     * The nodes which have been added or removed since the changes were last drained,
+     * or null if too many changes have been made to track them individually.
+     *
+     * <p>Only accessed while holding the lock on this instance.</p>
+     */
+    private @Nullable Set<Node> changes;
 
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
+        this.recordChanges = holder.getType().isGroup();
+        this.changes = this.recordChanges ? new HashSet<>() : null;
+    }
+
+    /**
+     * Gets an immutable copy of {@link #map}, building one if the map has changed since the last was built.
+     *
+     * @return a snapshot of the map
+     */
+    private ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> mapSnapshot() {
+        ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> snapshot = this.mapSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (this) {
+            snapshot = this.mapSnapshot;
+            if (snapshot == null) {
+                snapshot = build(this.map);
+                this.mapSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Gets an immutable copy of {@link #inheritanceMap}, building one if the map has changed since the last was built.
+     *
+     * @return a snapshot of the inheritance map
+     */
+    private ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> inheritanceMapSnapshot() {
+        ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> snapshot = this.inheritanceMapSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (this) {
+            snapshot = this.inheritanceMapSnapshot;
+            if (snapshot == null) {
+                snapshot = build(this.inheritanceMap);
+                this.inheritanceMapSnapshot = snapshot;
+            }
+            return snapshot;
+        }
     }
 
     public List<LocalizedNode> asList() {
-        return new ArrayList<>(this.map.values());
+        return new ArrayList<>(mapSnapshot().values());
     }
 
     public LinkedHashSet<LocalizedNode> asSet() {
-        return new LinkedHashSet<>(this.map.values());
+        return new LinkedHashSet<>(mapSnapshot().values());
     }
 
     public SortedSet<LocalizedNode> asSortedSet() {
@@ -126,11 +212,11 @@ public final class NodeMap {
     }
 
     public void copyTo(Collection<? super LocalizedNode> collection) {
-        collection.addAll(this.map.values());
+        collection.addAll(mapSnapshot().values());
     }
 
     public void copyTo(Collection<? super LocalizedNode> collection, ContextSet filter) {
-        for (Map.Entry<ImmutableContextSet, Collection<LocalizedNode>> e : this.map.asMap().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, Collection<LocalizedNode>> e : mapSnapshot().asMap().entrySet()) {
             if (e.getKey().isSatisfiedBy(filter)) {
                 collection.addAll(e.getValue());
             }
@@ -138,11 +224,11 @@ public final class NodeMap {
     }
 
     public void copyGroupNodesTo(Collection<? super LocalizedNode> collection) {
-        collection.addAll(this.inheritanceMap.values());
+        collection.addAll(inheritanceMapSnapshot().values());
     }
 
     public void copyGroupNodesTo(Collection<? super LocalizedNode> collection, ContextSet filter) {
-        for (Map.Entry<ImmutableContextSet, Collection<LocalizedNode>> e : this.inheritanceMap.asMap().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, Collection<LocalizedNode>> e : inheritanceMapSnapshot().asMap().entrySet()) {
             if (e.getKey().isSatisfiedBy(filter)) {
                 collection.addAll(e.getValue());
             }
@@ -152,17 +238,22 @@ public final class NodeMap {
     /**
      * Returns an immutable representation of the maps current state.
      *
+     * <p>The representation is shared until the map is next changed, so repeated calls don't copy the map.</p>
+     *
      * @return an immutable copy
      */
     public ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> immutable() {
-        return this.cache.get();
+        return mapSnapshot();
     }
 
     /**
-     * Invalidates the cache
+     * Gets the node in this map which is equal to the given node, ignoring expiry time and value.
+     *
+     * @param node the node to match
+     * @return the matching node, or null if there isn't one
      */
-    void invalidate() {
-        this.cache.invalidate();
+    public synchronized @Nullable LocalizedNode getMatch(Node node) {
+        return this.index.get(new NodeKey(node));
     }
 
     private LocalizedNode localise(Node node) {
@@ -179,112 +270,336 @@ public final class NodeMap {
         return ImmutableLocalizedNode.of(node, this.holder.getObjectName());
     }
 
-    void add(Node node) {
-        ImmutableContextSet context = node.getFullContexts().makeImmutable();
+    synchronized void add(Node node) {
         LocalizedNode n = localise(node);
-
-        SortedSet<LocalizedNode> nodesInContext = this.map.get(context);
-        nodesInContext.removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
-        nodesInContext.add(n);
-
-        if (node.isGroupNode()) {
-            SortedSet<LocalizedNode> groupNodesInContext = this.inheritanceMap.get(context);
-            groupNodesInContext.removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
-            if (node.getValue()) {
-                groupNodesInContext.add(n);
-            }
+        put(n);
+        if (n.isTemporary()) {
+            scheduleExpiry(n.getExpiryUnixTime());
         }
     }
 
-    void remove(Node node) {
-        ImmutableContextSet context = node.getFullContexts().makeImmutable();
-        this.map.get(context).removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
-        if (node.isGroupNode()) {
-            this.inheritanceMap.get(context).removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
+    synchronized void remove(Node node) {
+        LocalizedNode previous = this.index.remove(new NodeKey(node));
+        if (previous != null) {
+            unlink(previous);
         }
     }
 
-    private void removeExact(Node node) {
-        ImmutableContextSet context = node.getFullContexts().makeImmutable();
-        this.map.remove(context, node);
-        if (node.isGroupNode() && node.getValue()) {
-            this.inheritanceMap.remove(context, node);
+    synchronized void replace(Node node, Node previous) {
+        NodeKey key = new NodeKey(previous);
+        LocalizedNode match = this.index.get(key);
+        if (match != null && match.equals(previous)) {
+            this.index.remove(key);
+            unlink(match);
         }
-    }
-
-    void replace(Node node, Node previous) {
-        removeExact(previous);
         add(node);
     }
 
-    void clear() {
+    synchronized void clear() {
+        for (LocalizedNode node : this.index.values()) {
+            recordChange(node);
+        }
         this.map.clear();
         this.inheritanceMap.clear();
+        this.index.clear();
+        this.mapSnapshot = ImmutableSetMultimap.of();
+        this.inheritanceMapSnapshot = ImmutableSetMultimap.of();
     }
 
-    void clear(ContextSet contextSet) {
+    synchronized void clear(ContextSet contextSet) {
         ImmutableContextSet context = contextSet.makeImmutable();
-        this.map.removeAll(context);
-        this.inheritanceMap.removeAll(context);
+        SortedSet<LocalizedNode> removed = this.map.remove(context);
+        if (removed != null) {
+            for (LocalizedNode node : removed) {
+                this.index.remove(new NodeKey(node));
+                recordChange(node);
+            }
+            this.mapSnapshot = null;
+        }
+        if (this.inheritanceMap.remove(context) != null) {
+            this.inheritanceMapSnapshot = null;
+        }
     }
 
-    void setContent(Collection<? extends Node> set) {
-        this.map.clear();
-        this.inheritanceMap.clear();
-        for (Node n : set) {
-            add(n);
+    synchronized void setContent(Collection<? extends Node> set) {
+        clear();
+
+        // later nodes replace earlier ones with the same key
+        for (Node node : set) {
+            put(localise(node));
         }
+
+        scheduleExpiry(nextExpiry());
     }
 
     void setContent(Multimap<ImmutableContextSet, ? extends Node> multimap) {
         setContent(multimap.values());
     }
 
-    boolean removeIf(Predicate<? super LocalizedNode> predicate) {
-        boolean ret = this.map.values().removeIf(predicate);
-        this.inheritanceMap.values().removeIf(predicate);
-        return ret;
+    /**
+     * Removes and then adds a batch of nodes.
+     *
+     * <p>Nodes are only added if the map doesn't already contain them (ignoring expiry time).</p>
+     *
+     * @param toAdd the nodes to add
+     * @param toRemove the nodes to remove
+     * @return true if the map was changed
+     */
+    synchronized boolean applyChanges(Collection<? extends Node> toAdd, Collection<? extends Node> toRemove) {
+        boolean work = false;
+
+        for (Node node : toRemove) {
+            LocalizedNode previous = this.index.remove(new NodeKey(node));
+            if (previous != null) {
+                unlink(previous);
+                work = true;
+            }
+        }
+
+        for (Node node : toAdd) {
+            LocalizedNode n = localise(node);
+            LocalizedNode previous = this.index.get(new NodeKey(n));
+            if (previous == null || !previous.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME)) {
+                put(n);
+                work = true;
+
+                if (n.isTemporary()) {
+                    scheduleExpiry(n.getExpiryUnixTime());
+                }
+            }
+        }
+
+        return work;
     }
 
-    boolean removeIf(ContextSet contextSet, Predicate<? super LocalizedNode> predicate) {
-        ImmutableContextSet context = contextSet.makeImmutable();
-        SortedSet<LocalizedNode> nodes = this.map.get(context);
-        boolean ret = nodes.removeIf(predicate);
-        this.inheritanceMap.get(context).removeIf(predicate);
-        return ret;
+    synchronized boolean removeIf(Predicate<? super LocalizedNode> predicate) {
+        List<LocalizedNode> removed = new ArrayList<>();
+        for (LocalizedNode node : this.index.values()) {
+            if (predicate.test(node)) {
+                removed.add(node);
+            }
+        }
+        return removeAll(removed);
     }
 
-    boolean auditTemporaryNodes(@Nullable Set<? super LocalizedNode> removed) {
-        boolean work = false;
+    synchronized boolean removeIf(ContextSet contextSet, Predicate<? super LocalizedNode> predicate) {
+        SortedSet<LocalizedNode> nodes = this.map.get(contextSet.makeImmutable());
+        if (nodes == null) {
+            return false;
+        }
+
+        List<LocalizedNode> removed = new ArrayList<>();
+        for (LocalizedNode node : nodes) {
+            if (predicate.test(node)) {
+                removed.add(node);
+            }
+        }
+        return removeAll(removed);
+    }
+
+    synchronized boolean auditTemporaryNodes(@Nullable Set<? super LocalizedNode> removed) {
+        // nothing can have expired before the earliest scheduled expiry
+        if (this.scheduledExpiry >= System.currentTimeMillis() / 1000L) {
+            return false;
+        }
 
-        Iterator<? extends LocalizedNode> it = this.map.values().iterator();
-        while (it.hasNext()) {
-            LocalizedNode entry = it.next();
+        List<LocalizedNode> expired = new ArrayList<>();
+        for (LocalizedNode entry : this.index.values()) {
             if (entry.hasExpired()) {
-                if (removed != null) {
-                    removed.add(entry);
-                }
-                if (entry.isGroupNode() && entry.getValue()) {
-                    this.inheritanceMap.remove(entry.getFullContexts().makeImmutable(), entry);
-                }
-                work = true;
-                it.remove();
+                expired.add(entry);
             }
         }
 
+        if (removed != null) {
+            removed.addAll(expired);
+        }
+        boolean work = removeAll(expired);
+
+        // the scheduled entry has now been consumed, so schedule the next one
+        this.scheduledExpiry = Long.MAX_VALUE;
+        scheduleExpiry(nextExpiry());
         return work;
     }
 
-    private static final class NodeMapCache extends Cache<ImmutableSetMultimap<ImmutableContextSet, LocalizedNode>> {
-        private final NodeMap handle;
+    /**
+     * Adds a node to the map, replacing any node with the same key.
+     *
+     * @param node the node to add
+     */
+    private void put(LocalizedNode node) {
+        LocalizedNode previous = this.index.put(new NodeKey(node), node);
+        if (previous == node) {
+            return;
+        }
+        if (previous != null) {
+            unlink(previous);
+        }
 
-        private NodeMapCache(NodeMap handle) {
-            this.handle = handle;
+        recordChange(node);
+
+        ImmutableContextSet context = node.getFullContexts().makeImmutable();
+        this.map.computeIfAbsent(context, c -> new TreeSet<>(VALUE_COMPARATOR)).add(node);
+        this.mapSnapshot = null;
+        if (node.isGroupNode() && node.getValue()) {
+            this.inheritanceMap.computeIfAbsent(context, c -> new TreeSet<>(VALUE_COMPARATOR)).add(node);
+            this.inheritanceMapSnapshot = null;
+        }
+    }
+
+    /**
+     * Removes the given nodes from the map.
+     *
+     * @param nodes the nodes to remove, which must be present in the map
+     * @return true if the map was changed
+     */
+    private boolean removeAll(Collection<LocalizedNode> nodes) {
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        for (LocalizedNode node : nodes) {
+            this.index.remove(new NodeKey(node));
+            unlink(node);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a node from the bucket for its context, after it has been removed from the index.
+     *
+     * @param node the node to remove
+     */
+    private void unlink(LocalizedNode node) {
+        recordChange(node);
+
+        ImmutableContextSet context = node.getFullContexts().makeImmutable();
+        unlink(this.map, context, node);
+        this.mapSnapshot = null;
+        if (node.isGroupNode() && node.getValue()) {
+            unlink(this.inheritanceMap, context, node);
+            this.inheritanceMapSnapshot = null;
+        }
+    }
+
+    private static void unlink(Map<ImmutableContextSet, SortedSet<LocalizedNode>> map, ImmutableContextSet context, LocalizedNode node) {
+        SortedSet<LocalizedNode> nodes = map.get(context);
+        if (nodes != null && nodes.remove(node) && nodes.isEmpty()) {
+            map.remove(context);
+        }
+    }
+
+    private void recordChange(LocalizedNode node) {
+        if (this.changes == null) {
+            return;
+        }
+
+        // record the node without its location, so it is equal to the node which was added or removed
+        this.changes.add(node.getNode());
+        if (this.changes.size() > MAX_RECORDED_CHANGES) {
+            this.changes = null;
+        }
+    }
+
+    /**
+     * Gets the nodes which have been added or removed since the last call to
+     * this method, and resets the recorded changes.
+     *
+     * <p>Changes are only recorded for the maps of groups.</p>
+     *
+     * @return the changed nodes, or null if the changes weren't tracked
+     */
+    synchronized @Nullable Set<Node> drainChanges() {
+        if (!this.recordChanges) {
+            return null;
+        }
+
+        Set<Node> changes = this.changes;
+        this.changes = new HashSet<>();
+        return changes;
+    }
+
+    /**
+     * Gets the earliest expiry time of the temporary nodes in the map.
+     *
+     * @return the earliest expiry time, or {@link Long#MAX_VALUE} if there are no temporary nodes
+     */
+    private long nextExpiry() {
+        long next = Long.MAX_VALUE;
+        for (LocalizedNode node : this.index.values()) {
+            if (node.isTemporary()) {
+                next = Math.min(next, node.getExpiryUnixTime());
+            }
+        }
+        return next;
+    }
+
+    private void scheduleExpiry(long expireAt) {
+        if (expireAt < this.scheduledExpiry) {
+            this.scheduledExpiry = expireAt;
+            this.holder.getPlugin().getTemporaryNodeExpiryQueue().schedule(this.holder, expireAt);
+        }
+    }
+
+    private static ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> build(Map<ImmutableContextSet, SortedSet<LocalizedNode>> nodes) {
+        ImmutableSetMultimap.Builder<ImmutableContextSet, LocalizedNode> builder = ImmutableSetMultimap.builder();
+        for (Map.Entry<ImmutableContextSet, SortedSet<LocalizedNode>> e : nodes.entrySet()) {
+            builder.putAll(e.getKey(), e.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * The identity of a node within the map.
+     *
+     * <p>Two nodes have equal keys if they are equal ignoring expiry time and value.</p>
+     *
+     * @see me.lucko.luckperms.api.StandardNodeEquality#IGNORE_EXPIRY_TIME_AND_VALUE
+     */
+    private static final class NodeKey {
+        private final String permission;
+        private final boolean override;
+        private final String server;
+        private final String world;
+        private final boolean temporary;
+        private final ImmutableContextSet contexts;
+        private final int hashCode;
+
+        NodeKey(Node node) {
+            this.permission = node.getPermission();
+            this.override = node.isOverride();
+            this.server = node.getServer().orElse(null);
+            this.world = node.getWorld().orElse(null);
+            this.temporary = node.isTemporary();
+            this.contexts = node.getContexts().makeImmutable();
+            this.hashCode = calculateHashCode();
+        }
+
+        private int calculateHashCode() {
+            int result = this.permission.hashCode();
+            result = 31 * result + Boolean.hashCode(this.override);
+            result = 31 * result + Objects.hashCode(this.server);
+            result = 31 * result + Objects.hashCode(this.world);
+            result = 31 * result + Boolean.hashCode(this.temporary);
+            result = 31 * result + this.contexts.hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof NodeKey)) return false;
+            NodeKey other = (NodeKey) o;
+            return this.hashCode == other.hashCode &&
+                    this.permission.equals(other.permission) &&
+                    this.override == other.override &&
+                    Objects.equals(this.server, other.server) &&
+                    Objects.equals(this.world, other.world) &&
+                    this.temporary == other.temporary &&
+                    this.contexts.equals(other.contexts);
         }
 
         @Override
-        protected @NonNull ImmutableSetMultimap<ImmutableContextSet, LocalizedNode> supply() {
-            return ImmutableSetMultimap.copyOf(this.handle.map);
+        public int hashCode() {
+            return this.hashCode;
         }
     }
 
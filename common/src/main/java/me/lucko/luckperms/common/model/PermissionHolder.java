@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.model;
 
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 
 import me.lucko.luckperms.api.Contexts;
@@ -41,20 +42,25 @@ import me.lucko.luckperms.api.TemporaryMergeBehaviour;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.api.event.LuckPermsEvent;
+import me.lucko.luckperms.api.event.node.NodeAddEvent;
+import me.lucko.luckperms.api.event.node.NodeBatchMutateEvent;
+import me.lucko.luckperms.api.event.node.NodeRemoveEvent;
 import me.lucko.luckperms.common.cacheddata.HolderCachedData;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
-import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
-import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
+import me.lucko.luckperms.common.node.model.NodeDataContainer;
 import me.lucko.luckperms.common.node.utils.InheritanceInfo;
 import me.lucko.luckperms.common.node.utils.MetaType;
 import me.lucko.luckperms.common.node.utils.NodeTools;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -126,6 +132,14 @@ public abstract class PermissionHolder {
      */
     private final Lock ioLock = new ReentrantLock();
 
+    /**
+     * The enduring nodes last read from or written to the storage, or null if not known.
+     *
+     * <p>Used by storage implementations to work out which nodes have changed since, without
+     * reading them back. Cleared when the stored data may have been changed elsewhere.</p>
+     */
+    private volatile @Nullable Set<NodeDataContainer> persistedNodes = null;
+
     /**
      * Comparator used to ordering groups when calculating inheritance
      */
@@ -150,6 +164,28 @@ public abstract class PermissionHolder {
         return this.ioLock;
     }
 
+    public @Nullable Set<NodeDataContainer> getPersistedNodes() {
+        return this.persistedNodes;
+    }
+
+    public void setPersistedNodes(@Nullable Set<NodeDataContainer> persistedNodes) {
+        this.persistedNodes = persistedNodes;
+    }
+
+    /**
+     * Marks the persisted nodes as unknown, as the stored data may have been changed elsewhere.
+     *
+     * <p>Waits for any save in progress, so the save can't record its own data as persisted afterwards.</p>
+     */
+    public void invalidatePersistedNodes() {
+        this.ioLock.lock();
+        try {
+            this.persistedNodes = null;
+        } finally {
+            this.ioLock.unlock();
+        }
+    }
+
     public Comparator<Group> getInheritanceComparator() {
         return this.inheritanceComparator;
     }
@@ -220,8 +256,7 @@ public abstract class PermissionHolder {
     }
 
     protected void invalidateCache() {
-        this.enduringNodes.invalidate();
-        this.transientNodes.invalidate();
+        this.plugin.getInheritanceHandler().getIndex().update(this);
 
         invalidateCachedData();
         getPlugin().getEventFactory().handleDataRecalculate(this);
@@ -319,8 +354,7 @@ public abstract class PermissionHolder {
     }
 
     public void accumulateInheritancesTo(List<? super LocalizedNode> accumulator, Contexts context) {
-        InheritanceGraph graph = this.plugin.getInheritanceHandler().getGraph(context);
-        Iterable<PermissionHolder> traversal = graph.traverse(this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM), this);
+        List<PermissionHolder> traversal = this.plugin.getInheritanceHandler().getInheritanceTree(this, context);
         for (PermissionHolder holder : traversal) {
             List<? extends LocalizedNode> nodes = holder.getOwnNodes(context.getContexts());
             accumulator.addAll(nodes);
@@ -334,8 +368,7 @@ public abstract class PermissionHolder {
     }
 
     public void accumulateInheritancesTo(List<? super LocalizedNode> accumulator) {
-        InheritanceGraph graph = this.plugin.getInheritanceHandler().getGraph();
-        Iterable<PermissionHolder> traversal = graph.traverse(this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM), this);
+        List<PermissionHolder> traversal = this.plugin.getInheritanceHandler().getInheritanceTree(this, null);
         for (PermissionHolder holder : traversal) {
             List<? extends LocalizedNode> nodes = holder.getOwnNodes();
             accumulator.addAll(nodes);
@@ -367,22 +400,50 @@ public abstract class PermissionHolder {
     }
 
     public Map<String, Boolean> exportPermissions(Contexts context, boolean convertToLowercase, boolean resolveShorthand) {
+        if (convertToLowercase && context.hasSetting(LookupSetting.RESOLVE_INHERITANCE)) {
+            return this.plugin.getInheritanceHandler().exportPermissions(this, context, resolveShorthand);
+        }
+
         List<LocalizedNode> entries = getAllEntries(context);
-        return processExportedPermissions(entries, convertToLowercase, resolveShorthand);
+        return processExportedPermissions(entries, convertToLowercase, resolveShorthand, null);
     }
 
     public Map<String, Boolean> exportPermissions(boolean convertToLowercase, boolean resolveShorthand) {
+        if (convertToLowercase) {
+            return this.plugin.getInheritanceHandler().exportPermissions(this, null, resolveShorthand);
+        }
+
         List<LocalizedNode> entries = resolveInheritances();
-        return processExportedPermissions(entries, convertToLowercase, resolveShorthand);
+        return processExportedPermissions(entries, convertToLowercase, resolveShorthand, null);
+    }
+
+    /**
+     * Exports the resolved values of only the given permissions.
+     *
+     * @param context the contexts to resolve in, or {@link Contexts#allowAll()}
+     * @param convertToLowercase if permissions should be converted to lowercase
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @param permissions the permissions to export, in lowercase if permissions are converted to lowercase
+     * @return the resolved values. permissions which aren't set are not present in the map
+     */
+    public Map<String, Boolean> exportPermissions(Contexts context, boolean convertToLowercase, boolean resolveShorthand, Set<String> permissions) {
+        if (convertToLowercase && context == Contexts.allowAll()) {
+            return this.plugin.getInheritanceHandler().exportPermissions(this, null, resolveShorthand, permissions);
+        }
+        if (convertToLowercase && context.hasSetting(LookupSetting.RESOLVE_INHERITANCE)) {
+            return this.plugin.getInheritanceHandler().exportPermissions(this, context, resolveShorthand, permissions);
+        }
+
+        List<LocalizedNode> entries = context == Contexts.allowAll() ? resolveInheritances() : getAllEntries(context);
+        return processExportedPermissions(entries, convertToLowercase, resolveShorthand, permissions);
     }
 
-    private static ImmutableMap<String, Boolean> processExportedPermissions(List<LocalizedNode> entries, boolean convertToLowercase, boolean resolveShorthand) {
-        Map<String, Boolean> perms = new HashMap<>(entries.size());
+    private static ImmutableMap<String, Boolean> processExportedPermissions(List<LocalizedNode> entries, boolean convertToLowercase, boolean resolveShorthand, @Nullable Set<String> filter) {
+        Map<String, Boolean> perms = new HashMap<>(filter == null ? entries.size() : filter.size());
         for (Node node : entries) {
-            if (convertToLowercase) {
-                perms.putIfAbsent(node.getPermission().toLowerCase(), node.getValue());
-            } else {
-                perms.putIfAbsent(node.getPermission(), node.getValue());
+            String permission = convertToLowercase ? node.getPermission().toLowerCase() : node.getPermission();
+            if (filter == null || filter.contains(permission)) {
+                perms.putIfAbsent(permission, node.getValue());
             }
         }
 
@@ -390,10 +451,9 @@ public abstract class PermissionHolder {
             for (Node node : entries) {
                 List<String> shorthand = node.resolveShorthand();
                 for (String s : shorthand) {
-                    if (convertToLowercase) {
-                        perms.putIfAbsent(s.toLowerCase(), node.getValue());
-                    } else {
-                        perms.putIfAbsent(s, node.getValue());
+                    String permission = convertToLowercase ? s.toLowerCase() : s;
+                    if (filter == null || filter.contains(permission)) {
+                        perms.putIfAbsent(permission, node.getValue());
                     }
                 }
             }
@@ -407,8 +467,7 @@ public abstract class PermissionHolder {
             accumulator = MetaAccumulator.makeFromConfig(this.plugin);
         }
 
-        InheritanceGraph graph = this.plugin.getInheritanceHandler().getGraph(context);
-        Iterable<PermissionHolder> traversal = graph.traverse(this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM), this);
+        List<PermissionHolder> traversal = this.plugin.getInheritanceHandler().getInheritanceTree(this, context);
         for (PermissionHolder holder : traversal) {
             List<? extends LocalizedNode> nodes = holder.getOwnNodes(context.getContexts());
             for (LocalizedNode node : nodes) {
@@ -436,8 +495,7 @@ public abstract class PermissionHolder {
             accumulator = MetaAccumulator.makeFromConfig(this.plugin);
         }
 
-        InheritanceGraph graph = this.plugin.getInheritanceHandler().getGraph();
-        Iterable<PermissionHolder> traversal = graph.traverse(this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM), this);
+        List<PermissionHolder> traversal = this.plugin.getInheritanceHandler().getInheritanceTree(this, null);
         for (PermissionHolder holder : traversal) {
             List<? extends LocalizedNode> nodes = holder.getOwnNodes();
             for (LocalizedNode node : nodes) {
@@ -488,7 +546,32 @@ public abstract class PermissionHolder {
         return transientWork || enduringWork;
     }
 
+    /**
+     * Gets the current nodes in the given map to pass to an event, or an empty collection if the
+     * event has no subscribers, so that the map isn't copied after every change for nothing.
+     *
+     * @param data the node map
+     * @param eventClass the event the nodes will be passed to
+     * @return the nodes
+     */
+    private ImmutableCollection<? extends Node> eventState(NodeMap data, Class<? extends LuckPermsEvent> eventClass) {
+        if (!this.plugin.getEventFactory().shouldPost(eventClass)) {
+            return ImmutableSet.of();
+        }
+        return data.immutable().values();
+    }
+
     private Optional<LocalizedNode> searchForMatch(NodeMapType type, Node node, NodeEqualityPredicate equalityPredicate) {
+        // these are at least as strict as the key used to index the map,
+        // so the only possible match is the indexed node
+        if (equalityPredicate instanceof StandardNodeEquality && equalityPredicate != StandardNodeEquality.IGNORE_VALUE_OR_IF_TEMPORARY) {
+            LocalizedNode match = getData(type).getMatch(node);
+            if (match != null && match.equals(node, equalityPredicate)) {
+                return Optional.of(match);
+            }
+            return Optional.empty();
+        }
+
         for (LocalizedNode n : getData(type).immutable().values()) {
             if (n.equals(node, equalityPredicate)) {
                 return Optional.of(n);
@@ -543,10 +626,10 @@ public abstract class PermissionHolder {
             return DataMutateResult.ALREADY_HAS;
         }
 
-        ImmutableCollection<? extends Node> before = enduringData().immutable().values();
+        ImmutableCollection<? extends Node> before = callEvent ? eventState(this.enduringNodes, NodeAddEvent.class) : ImmutableSet.of();
         this.enduringNodes.add(node);
         invalidateCache();
-        ImmutableCollection<? extends Node> after = enduringData().immutable().values();
+        ImmutableCollection<? extends Node> after = callEvent ? eventState(this.enduringNodes, NodeAddEvent.class) : ImmutableSet.of();
 
         if (callEvent) {
             this.plugin.getEventFactory().handleNodeAdd(node, this, before, after);
@@ -607,14 +690,14 @@ public abstract class PermissionHolder {
                 // Remove the old node & add the new one.
                 ImmutableCollection<? extends Node> before = null;
                 if (callEvents) {
-                    before = data.immutable().values();
+                    before = eventState(data, NodeAddEvent.class);
                 }
 
                 data.replace(newNode, previous);
                 invalidateCache();
 
                 if (callEvents) {
-                    ImmutableCollection<? extends Node> after = data.immutable().values();
+                    ImmutableCollection<? extends Node> after = eventState(data, NodeAddEvent.class);
                     this.plugin.getEventFactory().handleNodeAdd(newNode, this, before, after);
                 }
 
@@ -628,14 +711,14 @@ public abstract class PermissionHolder {
 
                 ImmutableCollection<? extends Node> before = null;
                 if (callEvents) {
-                    before = data.immutable().values();
+                    before = eventState(data, NodeAddEvent.class);
                 }
 
                 data.replace(node, previous);
                 invalidateCache();
 
                 if (callEvents) {
-                    ImmutableCollection<? extends Node> after = data.immutable().values();
+                    ImmutableCollection<? extends Node> after = eventState(data, NodeAddEvent.class);
                     this.plugin.getEventFactory().handleNodeAdd(node, this, before, after);
                 }
 
@@ -652,15 +735,43 @@ public abstract class PermissionHolder {
             return DataMutateResult.LACKS;
         }
 
-        ImmutableCollection<? extends Node> before = enduringData().immutable().values();
+        ImmutableCollection<? extends Node> before = eventState(this.enduringNodes, NodeRemoveEvent.class);
         this.enduringNodes.remove(node);
         invalidateCache();
-        ImmutableCollection<? extends Node> after = enduringData().immutable().values();
+        ImmutableCollection<? extends Node> after = eventState(this.enduringNodes, NodeRemoveEvent.class);
 
         this.plugin.getEventFactory().handleNodeRemove(node, this, before, after);
         return DataMutateResult.SUCCESS;
     }
 
+    /**
+     * Unsets and then sets a batch of nodes, invalidating caches and calling an event once
+     *
+     * @param toSet the nodes to set
+     * @param toUnset the nodes to unset
+     * @return {@link DataMutateResult#SUCCESS} if the holders data was changed
+     */
+    public DataMutateResult setPermissions(Collection<? extends Node> toSet, Collection<? extends Node> toUnset) {
+        List<Node> set = new ArrayList<>(toSet.size());
+        for (Node node : toSet) {
+            // groups implicitly have themselves, see #hasPermission
+            if (this.getType().isGroup() && node.isGroupNode() && node.getGroupName().equalsIgnoreCase(getObjectName())) {
+                continue;
+            }
+            set.add(node);
+        }
+
+        ImmutableCollection<? extends Node> before = eventState(this.enduringNodes, NodeBatchMutateEvent.class);
+        if (!this.enduringNodes.applyChanges(set, toUnset)) {
+            return DataMutateResult.FAIL;
+        }
+        invalidateCache();
+        ImmutableCollection<? extends Node> after = eventState(this.enduringNodes, NodeBatchMutateEvent.class);
+
+        this.plugin.getEventFactory().handleNodeBatchMutate(this, before, after);
+        return DataMutateResult.SUCCESS;
+    }
+
     public DataMutateResult unsetTransientPermission(Node node) {
         if (hasPermission(NodeMapType.TRANSIENT, node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE) == Tristate.UNDEFINED) {
             return DataMutateResult.LACKS;
@@ -0,0 +1,95 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A queue of holders ordered by the time their next temporary node expires.
+ *
+ * <p>Entries are added by a holder's {@link NodeMap} as temporary nodes are added to it, so only the holders
+ * which actually have temporary nodes need to be audited, and only when one of their nodes is due to expire.</p>
+ *
+ * <p>Holders are only weakly referenced, so entries for holders which have since been unloaded don't keep them
+ * in memory. Entries for nodes which were removed before they expired are not removed from the queue - they
+ * are discarded when they become due, as auditing the holder will find nothing to remove.</p>
+ */
+public final class TemporaryNodeExpiryQueue {
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /**
+     * Schedules the holder to be audited once the given expiry time has passed.
+     *
+     * @param holder the holder
+     * @param expireAt the expiry time, in unix seconds
+     */
+    public synchronized void schedule(PermissionHolder holder, long expireAt) {
+        this.queue.add(new Entry(holder, expireAt));
+    }
+
+    /**
+     * Removes and returns the holders which have an expiry time before the given time.
+     *
+     * @param now the current time, in unix seconds
+     * @return the holders due to be audited
+     */
+    public synchronized Set<PermissionHolder> pollDue(long now) {
+        Entry head = this.queue.peek();
+        if (head == null || head.expireAt >= now) {
+            return Collections.emptySet();
+        }
+
+        Set<PermissionHolder> due = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (head != null && head.expireAt < now) {
+            this.queue.poll();
+            PermissionHolder holder = head.holder.get();
+            if (holder != null) {
+                due.add(holder);
+            }
+            head = this.queue.peek();
+        }
+        return due;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final WeakReference<PermissionHolder> holder;
+        private final long expireAt;
+
+        Entry(PermissionHolder holder, long expireAt) {
+            this.holder = new WeakReference<>(holder);
+            this.expireAt = expireAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(this.expireAt, other.expireAt);
+        }
+    }
+}
@@ -134,6 +134,15 @@ public class User extends PermissionHolder implements Identifiable<UserIdentifie
      * @return true if a change was made
      */
     public boolean setName(String name, boolean weak) {
+        String previousName = this.name;
+        boolean changed = setNameInternal(name, weak);
+        if (changed) {
+            getPlugin().getUserManager().updateUsernameIndex(this, previousName);
+        }
+        return changed;
+    }
+
+    private boolean setNameInternal(String name, boolean weak) {
         if (name != null && name.length() > 16) {
             return false; // nope
         }
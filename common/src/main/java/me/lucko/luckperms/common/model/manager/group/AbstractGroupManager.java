@@ -26,7 +26,6 @@
 package me.lucko.luckperms.common.model.manager.group;
 
 import me.lucko.luckperms.common.model.Group;
-import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.manager.AbstractManager;
 
 import java.util.Optional;
@@ -60,6 +59,36 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return null;
     }
 
+    @Override
+    public T getOrMake(String id) {
+        boolean loaded = isLoaded(id);
+        T group = super.getOrMake(id);
+        if (!loaded) {
+            // parent nodes referring to the group can now be resolved
+            group.getPlugin().getInheritanceHandler().invalidateInheritingGroupCaches(group.getName(), true);
+        }
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        T group = getIfLoaded(id);
+        super.unload(id);
+        if (group != null) {
+            // remove the group from the inheritance index, so it isn't kept in memory or returned by lookups
+            group.getPlugin().getInheritanceHandler().getIndex().remove(group);
+            group.getPlugin().getInheritanceHandler().invalidateInheritingGroupCaches(group.getName(), true);
+        }
+    }
+
+    @Override
+    public void unloadAll() {
+        for (T group : getAll().values()) {
+            group.getPlugin().getInheritanceHandler().getIndex().remove(group);
+        }
+        super.unloadAll();
+    }
+
     @Override
     protected String sanitizeIdentifier(String s) {
         return s.toLowerCase();
@@ -67,7 +96,12 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
 
     @Override
     public void invalidateAllGroupCaches() {
-        getAll().values().forEach(PermissionHolder::invalidateCachedData);
+        for (T group : getAll().values()) {
+            group.getInheritanceTreeCache().invalidate();
+            group.getResolvedPermissionsCache().invalidate();
+            group.getOwnPermissionsCache().invalidate();
+            group.invalidateCachedData();
+        }
     }
 
     @Override
@@ -30,6 +30,7 @@ import com.google.common.collect.ImmutableCollection;
 import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.cacheddata.SharedPermissionDataRegistry;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
@@ -38,20 +39,28 @@ import me.lucko.luckperms.common.model.manager.AbstractManager;
 import me.lucko.luckperms.common.node.factory.NodeFactory;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public abstract class AbstractUserManager<T extends User> extends AbstractManager<UserIdentifier, User, T> implements UserManager<T> {
 
     private final LuckPermsPlugin plugin;
     private final UserHousekeeper housekeeper;
+    private final SharedPermissionDataRegistry sharedPermissionDataRegistry = new SharedPermissionDataRegistry();
+
+    // the uuids of loaded users, indexed by their username in lowercase
+    private final Map<String, UUID> usernameIndex = new ConcurrentHashMap<>();
 
     public AbstractUserManager(LuckPermsPlugin plugin, UserHousekeeper.TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
         this.housekeeper = new UserHousekeeper(plugin, this, timeoutSettings);
-        this.plugin.getBootstrap().getScheduler().asyncRepeating(this.housekeeper, 10, TimeUnit.SECONDS);
     }
 
     @Override
@@ -60,18 +69,50 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         if (id.getUsername().isPresent()) {
             ret.setName(id.getUsername().get(), false);
         }
+        updateUsernameIndex(ret, null);
+        this.housekeeper.registerLoad(id.getUuid());
         return ret;
     }
 
     @Override
-    public T getByUsername(String name) {
+    public void unload(UserIdentifier id) {
+        T user = getIfLoaded(id);
+        super.unload(id);
+
+        // remove the user from the inheritance & username indexes, and release any shared permission data
+        if (user != null) {
+            user.getName().ifPresent(name -> this.usernameIndex.remove(name.toLowerCase(Locale.ROOT), user.getUuid()));
+            this.plugin.getInheritanceHandler().getIndex().remove(user);
+            user.invalidateCachedData();
+        }
+    }
+
+    @Override
+    public void unloadAll() {
         for (T user : getAll().values()) {
-            Optional<String> n = user.getName();
-            if (n.isPresent() && n.get().equalsIgnoreCase(name)) {
-                return user;
-            }
+            this.plugin.getInheritanceHandler().getIndex().remove(user);
+        }
+        super.unloadAll();
+        this.usernameIndex.clear();
+    }
+
+    @Override
+    public T getByUsername(String name) {
+        UUID uuid = this.usernameIndex.get(name.toLowerCase(Locale.ROOT));
+        return uuid == null ? null : getIfLoaded(uuid);
+    }
+
+    @Override
+    public void updateUsernameIndex(User user, @Nullable String previousName) {
+        if (previousName != null) {
+            this.usernameIndex.remove(previousName.toLowerCase(Locale.ROOT), user.getUuid());
+        }
+
+        // only index the instance which is actually loaded
+        Optional<String> name = user.getName();
+        if (name.isPresent() && getIfLoaded(user.getUuid()) == user) {
+            this.usernameIndex.put(name.get().toLowerCase(Locale.ROOT), user.getUuid());
         }
-        return null;
     }
 
     @Override
@@ -152,13 +193,14 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
     @Override
     public CompletableFuture<Void> updateAllUsers() {
         return CompletableFuture.runAsync(
-                () -> this.plugin.getBootstrap().getOnlinePlayers().forEach(u -> this.plugin.getStorage().loadUser(u, null).join()),
+                () -> this.plugin.getStorage().loadUsers(this.plugin.getBootstrap().getOnlinePlayers().collect(Collectors.toSet())).join(),
                 this.plugin.getBootstrap().getScheduler().async()
         );
     }
 
     @Override
     public void invalidateAllUserCaches() {
+        this.sharedPermissionDataRegistry.invalidate();
         getAll().values().forEach(PermissionHolder::invalidateCachedData);
     }
 
@@ -167,6 +209,11 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         getAll().values().forEach(p -> p.getCachedData().invalidatePermissionCalculators());
     }
 
+    @Override
+    public SharedPermissionDataRegistry getSharedPermissionDataRegistry() {
+        return this.sharedPermissionDataRegistry;
+    }
+
     /**
      * Check whether the user's state indicates that they should be persisted to storage.
      *
@@ -25,50 +25,82 @@
 
 package me.lucko.luckperms.common.model.manager.user;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.UserIdentifier;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.util.ExpiringSet;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The instance responsible for unloading users which are no longer needed.
+ *
+ * <p>Every offline user held by the manager is tracked in a cache, along with the reason it was loaded.
+ * Users are unloaded when their entry expires, or when they are evicted to keep the number of resident
+ * offline users within the configured limit. Users who are online are never unloaded.</p>
  */
-public class UserHousekeeper implements Runnable {
+public class UserHousekeeper {
     private final LuckPermsPlugin plugin;
     private final UserManager<?> userManager;
+    private final long connectionTimeout;
 
-    // contains the uuids of users who have recently logged in / out
-    private final ExpiringSet<UUID> recentlyUsed;
-
-    // contains the uuids of users who have recently been retrieved from the API
-    private final ExpiringSet<UUID> recentlyUsedApi;
+    // contains the uuids of offline users who are loaded, mapped to the reason they were loaded
+    private final Cache<UUID, Usage> usages;
 
     public UserHousekeeper(LuckPermsPlugin plugin, UserManager<?> userManager, TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
         this.userManager = userManager;
-        this.recentlyUsed = new ExpiringSet<>(timeoutSettings.duration, timeoutSettings.unit);
-        this.recentlyUsedApi = new ExpiringSet<>(5, TimeUnit.MINUTES);
+        this.connectionTimeout = timeoutSettings.unit.toNanos(timeoutSettings.duration);
+
+        Caffeine<UUID, Usage> builder = Caffeine.newBuilder()
+                .expireAfter(new UsageExpiry())
+                .removalListener((UUID uuid, Usage usage, RemovalCause cause) -> {
+                    if (uuid != null && cause.wasEvicted()) {
+                        evicted(uuid);
+                    }
+                });
+
+        // users who have recently logged in / out have no weight, so are never evicted by size
+        int maximumSize = plugin.getConfiguration().get(ConfigKeys.OFFLINE_USER_CACHE_SIZE);
+        if (maximumSize >= 0) {
+            builder.maximumWeight(maximumSize).weigher((UUID uuid, Usage usage) -> usage == Usage.CONNECTION ? 0 : 1);
+        }
+
+        this.usages = builder.build();
     }
 
     // called when a player attempts a connection or logs out
     public void registerUsage(UUID uuid) {
-        this.recentlyUsed.add(uuid);
+        this.usages.put(uuid, Usage.CONNECTION);
+        scheduleCleanup(this.connectionTimeout);
     }
 
     public void registerApiUsage(UUID uuid) {
-        this.recentlyUsedApi.add(uuid);
+        this.usages.asMap().compute(uuid, (k, usage) -> usage == Usage.CONNECTION ? usage : Usage.API);
+        scheduleCleanup(Usage.API.timeout);
     }
 
     public void clearApiUsage(UUID uuid) {
-        this.recentlyUsedApi.remove(uuid);
+        if (this.usages.asMap().remove(uuid, Usage.API)) {
+            evicted(uuid);
+        }
     }
 
-    @Override
-    public void run() {
-        for (UserIdentifier entry : this.userManager.getAll().keySet()) {
-            cleanup(entry);
+    // called when a user is loaded by the manager
+    void registerLoad(UUID uuid) {
+        if (this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+            return;
+        }
+
+        if (this.usages.asMap().putIfAbsent(uuid, Usage.OTHER) == null) {
+            scheduleCleanup(Usage.OTHER.timeout);
         }
     }
 
@@ -76,14 +108,79 @@ public class UserHousekeeper implements Runnable {
         UUID uuid = identifier.getUuid();
 
         // unload users which aren't online and who haven't been online (or tried to login) recently
-        if (this.recentlyUsed.contains(uuid) || this.recentlyUsedApi.contains(uuid) || this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+        Usage usage = this.usages.asMap().get(uuid);
+        if ((usage != null && usage != Usage.OTHER) || this.plugin.getBootstrap().isPlayerOnline(uuid)) {
             return;
         }
 
         // unload them
+        this.usages.invalidate(uuid);
         this.userManager.unload(identifier);
     }
 
+    // called once a user is no longer tracked in the cache
+    private void evicted(UUID uuid) {
+        if (this.usages.asMap().containsKey(uuid) || this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+            return;
+        }
+
+        this.userManager.unload(UserIdentifier.of(uuid, null));
+    }
+
+    // expired entries are only removed during cache maintenance, so request
+    // it once the entry which was just added is due to expire
+    private void scheduleCleanup(long timeoutNanos) {
+        this.plugin.getBootstrap().getScheduler().asyncLater(this.usages::cleanUp, TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + 1000L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The reasons for an offline user to be loaded
+     */
+    private enum Usage {
+
+        /**
+         * The player has recently logged in or out
+         */
+        CONNECTION(-1),
+
+        /**
+         * The user was loaded through the API
+         */
+        API(TimeUnit.MINUTES.toNanos(5)),
+
+        /**
+         * The user was loaded for any other reason, e.g. by a command
+         */
+        OTHER(TimeUnit.SECONDS.toNanos(10));
+
+        private final long timeout;
+
+        Usage(long timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    private final class UsageExpiry implements Expiry<UUID, Usage> {
+        private long timeout(Usage usage) {
+            return usage == Usage.CONNECTION ? UserHousekeeper.this.connectionTimeout : usage.timeout;
+        }
+
+        @Override
+        public long expireAfterCreate(@NonNull UUID key, @NonNull Usage value, long currentTime) {
+            return timeout(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull UUID key, @NonNull Usage value, long currentTime, long currentDuration) {
+            return timeout(value);
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull UUID key, @NonNull Usage value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
     public static TimeoutSettings timeoutSettings(long duration, TimeUnit unit) {
         return new TimeoutSettings(duration, unit);
     }
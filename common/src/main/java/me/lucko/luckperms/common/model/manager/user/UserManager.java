@@ -25,11 +25,14 @@
 
 package me.lucko.luckperms.common.model.manager.user;
 
+import me.lucko.luckperms.common.cacheddata.SharedPermissionDataRegistry;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.UserIdentifier;
 import me.lucko.luckperms.common.model.manager.Manager;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -43,6 +46,14 @@ public interface UserManager<T extends User> extends Manager<UserIdentifier, Use
      */
     T getByUsername(String name);
 
+    /**
+     * Updates the index used by {@link #getByUsername(String)} after the name of a user has changed.
+     *
+     * @param user the user
+     * @param previousName the users previous name
+     */
+    void updateUsernameIndex(User user, @Nullable String previousName);
+
     /**
      * Get a user object by uuid
      *
@@ -95,4 +106,11 @@ public interface UserManager<T extends User> extends Manager<UserIdentifier, Use
      */
     void invalidateAllPermissionCalculators();
 
+    /**
+     * Gets the registry used to share permission data between users with identical data.
+     *
+     * @return the registry
+     */
+    SharedPermissionDataRegistry getSharedPermissionDataRegistry();
+
 }
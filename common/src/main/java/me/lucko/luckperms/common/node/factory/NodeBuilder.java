@@ -41,6 +41,7 @@ import java.util.Set;
  * Builds node instances
  */
 public class NodeBuilder implements Node.Builder {
+
     protected String permission;
     private ImmutableContextSet.Builder extraContexts = ImmutableContextSet.builder();
     private Boolean value = true;
@@ -26,7 +26,6 @@
 package me.lucko.luckperms.common.node.model;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Node;
@@ -37,17 +36,13 @@ import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.api.context.MutableContextSet;
 import me.lucko.luckperms.api.nodetype.NodeType;
 import me.lucko.luckperms.api.nodetype.NodeTypeKey;
-import me.lucko.luckperms.api.nodetype.types.RegexType;
-import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
 import me.lucko.luckperms.common.node.factory.NodeBuilder;
-import me.lucko.luckperms.common.node.utils.ShorthandParser;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -63,9 +58,9 @@ public final class ImmutableNode implements Node {
     public static final char NODE_SEPARATOR = '.';
 
     /**
-     * The numeric value of {@link #NODE_SEPARATOR}
+     * The character code of {@link #NODE_SEPARATOR}
      */
-    public static final int NODE_SEPARATOR_CODE = Character.getNumericValue(NODE_SEPARATOR);
+    public static final int NODE_SEPARATOR_CODE = NODE_SEPARATOR;
 
     // node attributes
 
@@ -78,9 +73,6 @@ public final class ImmutableNode implements Node {
 
     private final long expireAt; // 0L for no expiry
     private final ImmutableContextSet contexts;
-    private final ImmutableContextSet fullContexts;
-
-
 
     // cached state
     private final Optional<String> optServer;
@@ -89,9 +81,9 @@ public final class ImmutableNode implements Node {
     // this class is immutable, so we can cache the hashcode calculation
     private final int hashCode;
 
-    private final int wildcardLevel;
-    private final Map<NodeTypeKey<?>, NodeType> resolvedTypes;
-    private final List<String> resolvedShorthand;
+    // lazily computed state
+    private volatile ImmutableContextSet fullContexts = null;
+    private volatile PermissionMetadata metadata = null;
 
     /**
      * Make an immutable node instance
@@ -122,27 +114,9 @@ public final class ImmutableNode implements Node {
         this.contexts = contexts == null ? ContextSet.empty() : contexts.makeImmutable();
 
         // define cached state
-        this.wildcardLevel = this.permission.endsWith(WildcardProcessor.WILDCARD_SUFFIX) ? this.permission.chars().filter(num -> num == NODE_SEPARATOR_CODE).sum() : -1;
-        this.resolvedTypes = NodeTypes.parseTypes(this.permission);
-        this.resolvedShorthand = this.resolvedTypes.containsKey(RegexType.KEY) ? ImmutableList.of() : ImmutableList.copyOf(ShorthandParser.parseShorthand(getPermission()));
         this.optServer = Optional.ofNullable(this.server);
         this.optWorld = Optional.ofNullable(this.world);
 
-        // calculate the "full" context set
-        if (this.server != null || this.world != null) {
-            MutableContextSet fullContexts = this.contexts.mutableCopy();
-            if (this.server != null) {
-                fullContexts.add(Contexts.SERVER_KEY, this.server);
-            }
-            if (this.world != null) {
-                fullContexts.add(Contexts.WORLD_KEY, this.world);
-            }
-
-            this.fullContexts = fullContexts.makeImmutable();
-        } else {
-            this.fullContexts = this.contexts;
-        }
-
         this.hashCode = calculateHashCode();
     }
 
@@ -193,7 +167,36 @@ public final class ImmutableNode implements Node {
 
     @Override
     public @NonNull ImmutableContextSet getFullContexts() {
-        return this.fullContexts;
+        ImmutableContextSet fullContexts = this.fullContexts;
+        if (fullContexts == null) {
+            fullContexts = calculateFullContexts();
+            this.fullContexts = fullContexts;
+        }
+        return fullContexts;
+    }
+
+    private ImmutableContextSet calculateFullContexts() {
+        if (this.server == null && this.world == null) {
+            return this.contexts;
+        }
+
+        MutableContextSet fullContexts = this.contexts.mutableCopy();
+        if (this.server != null) {
+            fullContexts.add(Contexts.SERVER_KEY, this.server);
+        }
+        if (this.world != null) {
+            fullContexts.add(Contexts.WORLD_KEY, this.world);
+        }
+        return fullContexts.makeImmutable();
+    }
+
+    private PermissionMetadata getMetadata() {
+        PermissionMetadata metadata = this.metadata;
+        if (metadata == null) {
+            metadata = PermissionMetadata.of(this.permission);
+            this.metadata = metadata;
+        }
+        return metadata;
     }
 
     @Override
@@ -241,18 +244,18 @@ public final class ImmutableNode implements Node {
 
     @Override
     public boolean isWildcard() {
-        return this.wildcardLevel != -1;
+        return getMetadata().getWildcardLevel() != -1;
     }
 
     @Override
     public int getWildcardLevel() {
         Preconditions.checkState(isWildcard(), "Node is not a wildcard");
-        return this.wildcardLevel;
+        return getMetadata().getWildcardLevel();
     }
 
     @Override
     public boolean hasTypeData() {
-        return !this.resolvedTypes.isEmpty();
+        return !getMetadata().getResolvedTypes().isEmpty();
     }
 
     @Override
@@ -260,13 +263,13 @@ public final class ImmutableNode implements Node {
         Objects.requireNonNull(key, "key");
 
         //noinspection unchecked
-        T result = (T) this.resolvedTypes.get(key);
+        T result = (T) getMetadata().getResolvedTypes().get(key);
         return Optional.ofNullable(result);
     }
 
     @Override
     public @NonNull List<String> resolveShorthand() {
-        return this.resolvedShorthand;
+        return getMetadata().getResolvedShorthand();
     }
 
     @Override
@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.node.model;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.node.factory.NodeFactory;
@@ -39,6 +42,12 @@ import java.util.Objects;
  */
 public final class NodeDataContainer {
 
+    /**
+     * Interns the nodes read from storage, so identical nodes held by different
+     * holders share a single instance
+     */
+    private static final Interner<Node> NODE_INTERNER = Interners.newWeakInterner();
+
     public static NodeDataContainer fromNode(Node node) {
         NodeDataContainer model = of(
                 node.getPermission(),
@@ -86,6 +95,7 @@ public final class NodeDataContainer {
                     .setExpiry(this.expiry)
                     .withExtraContext(this.contexts)
                     .build();
+            this.node = NODE_INTERNER.intern(this.node);
         }
 
         return this.node;
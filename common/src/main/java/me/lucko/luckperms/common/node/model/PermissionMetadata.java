@@ -0,0 +1,104 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.node.model;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.api.nodetype.NodeType;
+import me.lucko.luckperms.api.nodetype.NodeTypeKey;
+import me.lucko.luckperms.api.nodetype.types.RegexType;
+import me.lucko.luckperms.common.calculator.processor.TrieProcessor;
+import me.lucko.luckperms.common.node.utils.ShorthandParser;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metadata derived from a permission string, shared between all nodes
+ * with the same permission.
+ *
+ * <p>Each component is parsed lazily, the first time it is requested.
+ * Instances are only weakly held by the table, so entries are removed
+ * once no node refers to them.</p>
+ */
+final class PermissionMetadata {
+
+    private static final LoadingCache<String, PermissionMetadata> TABLE = Caffeine.newBuilder()
+            .weakValues()
+            .build(PermissionMetadata::new);
+
+    /**
+     * Gets the shared metadata instance for the given permission.
+     *
+     * @param permission the (interned) permission string
+     * @return the metadata
+     */
+    static PermissionMetadata of(String permission) {
+        return TABLE.get(permission);
+    }
+
+    private final String permission;
+
+    // lazily computed - these are idempotent, so racing threads will
+    // at worst compute the same value twice.
+    private volatile int wildcardLevel = Integer.MIN_VALUE;
+    private volatile Map<NodeTypeKey<?>, NodeType> resolvedTypes = null;
+    private volatile List<String> resolvedShorthand = null;
+
+    private PermissionMetadata(String permission) {
+        this.permission = permission;
+    }
+
+    int getWildcardLevel() {
+        int wildcardLevel = this.wildcardLevel;
+        if (wildcardLevel == Integer.MIN_VALUE) {
+            wildcardLevel = this.permission.endsWith(TrieProcessor.WILDCARD_SUFFIX) ? (int) this.permission.chars().filter(num -> num == ImmutableNode.NODE_SEPARATOR_CODE).count() : -1;
+            this.wildcardLevel = wildcardLevel;
+        }
+        return wildcardLevel;
+    }
+
+    Map<NodeTypeKey<?>, NodeType> getResolvedTypes() {
+        Map<NodeTypeKey<?>, NodeType> resolvedTypes = this.resolvedTypes;
+        if (resolvedTypes == null) {
+            resolvedTypes = ImmutableMap.copyOf(NodeTypes.parseTypes(this.permission));
+            this.resolvedTypes = resolvedTypes;
+        }
+        return resolvedTypes;
+    }
+
+    List<String> getResolvedShorthand() {
+        List<String> resolvedShorthand = this.resolvedShorthand;
+        if (resolvedShorthand == null) {
+            resolvedShorthand = getResolvedTypes().containsKey(RegexType.KEY) ? ImmutableList.of() : ImmutableList.copyOf(ShorthandParser.parseShorthand(this.permission));
+            this.resolvedShorthand = resolvedShorthand;
+        }
+        return resolvedShorthand;
+    }
+}
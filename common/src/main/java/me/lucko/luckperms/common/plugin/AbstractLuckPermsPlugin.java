@@ -29,6 +29,7 @@ import me.lucko.luckperms.api.LuckPermsApi;
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.ApiRegistrationUtil;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
+import me.lucko.luckperms.common.cacheddata.CachedDataStatistics;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.config.AbstractConfiguration;
 import me.lucko.luckperms.common.config.ConfigKeys;
@@ -44,6 +45,7 @@ import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.messaging.MessagingFactory;
+import me.lucko.luckperms.common.model.TemporaryNodeExpiryQueue;
 import me.lucko.luckperms.common.plugin.logging.PluginLogger;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.Storage;
@@ -77,6 +79,8 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private InternalMessagingService messagingService = null;
     private SyncTask.Buffer syncTaskBuffer;
     private InheritanceHandler inheritanceHandler;
+    private CachedDataStatistics cachedDataStatistics;
+    private TemporaryNodeExpiryQueue temporaryNodeExpiryQueue;
     private CalculatorFactory calculatorFactory;
     private LuckPermsApiProvider apiProvider;
     private EventFactory eventFactory;
@@ -144,6 +148,8 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         // load internal managers
         getLogger().info("Loading internal permission managers...");
         this.inheritanceHandler = new InheritanceHandler(this);
+        this.cachedDataStatistics = new CachedDataStatistics(this);
+        this.temporaryNodeExpiryQueue = new TemporaryNodeExpiryQueue();
 
         // setup user/group/track manager
         setupManagers();
@@ -309,6 +315,16 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.inheritanceHandler;
     }
 
+    @Override
+    public CachedDataStatistics getCachedDataStatistics() {
+        return this.cachedDataStatistics;
+    }
+
+    @Override
+    public TemporaryNodeExpiryQueue getTemporaryNodeExpiryQueue() {
+        return this.temporaryNodeExpiryQueue;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
@@ -28,6 +28,7 @@ package me.lucko.luckperms.common.plugin;
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
+import me.lucko.luckperms.common.cacheddata.CachedDataStatistics;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.command.CommandManager;
 import me.lucko.luckperms.common.command.abstraction.Command;
@@ -39,6 +40,7 @@ import me.lucko.luckperms.common.inheritance.InheritanceHandler;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.TemporaryNodeExpiryQueue;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
@@ -188,6 +190,20 @@ public interface LuckPermsPlugin {
      */
     InheritanceHandler getInheritanceHandler();
 
+    /**
+     * Gets the statistics recorded for the cached data of users and groups
+     *
+     * @return the cached data statistics
+     */
+    CachedDataStatistics getCachedDataStatistics();
+
+    /**
+     * Gets the queue of holders waiting for temporary nodes to expire
+     *
+     * @return the temporary node expiry queue
+     */
+    TemporaryNodeExpiryQueue getTemporaryNodeExpiryQueue();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
@@ -0,0 +1,366 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import com.google.common.collect.Lists;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Buffers requests to save users and groups.
+ *
+ * <p>Requests to save the same user or group within the buffer time are combined
+ * into a single save, and the saves for all users and groups are then written
+ * together, using {@link StorageImplementation#saveUsers(Collection)} and
+ * {@link StorageImplementation#saveGroups(Collection)}, in batches of at most
+ * {@link #MAX_BATCH_SIZE}.</p>
+ *
+ * <p>Waiting on the future returned for a request causes the buffer to be
+ * flushed straight away. Saves which nothing waits for are written up to the
+ * buffer time after they are requested, so they are delayed by that much before
+ * other servers sharing the storage can see them.</p>
+ */
+final class SaveBuffer {
+
+    /** The maximum number of holders written in a single batch */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final StorageImplementation implementation;
+    private final SchedulerAdapter scheduler;
+
+    /** The buffer time, in milliseconds */
+    private final long bufferTime;
+
+    /** The pending saves */
+    private final Map<UUID, PendingSave<User>> users = new LinkedHashMap<>();
+    private final Map<String, PendingSave<Group>> groups = new LinkedHashMap<>();
+
+    /** If a flush has been scheduled to run after the buffer time */
+    private boolean flushScheduled = false;
+
+    /** If a flush has been requested to run straight away */
+    private boolean flushRequested = false;
+
+    /** If the buffer has been closed, and saves should be written directly */
+    private boolean closed = false;
+
+    /** Mutex to guard the fields above */
+    private final Object[] mutex = new Object[0];
+
+    SaveBuffer(StorageImplementation implementation, SchedulerAdapter scheduler, long bufferTime) {
+        this.implementation = implementation;
+        this.scheduler = scheduler;
+        this.bufferTime = bufferTime;
+    }
+
+    public CompletableFuture<Void> saveUser(User user) {
+        return request(this.users, user.getUuid(), user, this.implementation::saveUser);
+    }
+
+    public CompletableFuture<Void> saveGroup(Group group) {
+        return request(this.groups, group.getName(), group, this.implementation::saveGroup);
+    }
+
+    private <K, T> CompletableFuture<Void> request(Map<K, PendingSave<T>> pending, K key, T holder, Writer<T> writer) {
+        PendingSave<T> save;
+        synchronized (this.mutex) {
+            if (this.closed) {
+                save = null;
+            } else {
+                save = pending.get(key);
+                if (save != null && !save.claimed) {
+                    // the existing save hasn't been written yet, so it can be reused
+                    // for this request, as long as it writes the latest instance
+                    save.holder = holder;
+                } else {
+                    save = new PendingSave<>(pending, key, holder);
+                    pending.put(key, save);
+                }
+
+                if (!this.flushScheduled) {
+                    this.flushScheduled = true;
+                    this.scheduler.asyncLater(this::flush, this.bufferTime, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        if (save == null) {
+            // the buffer has been closed, write the save in this thread
+            save = new PendingSave<>(null, key, holder);
+            save.claimed = true;
+            save.write(writer);
+        }
+
+        SaveFuture future = new SaveFuture();
+        save.future.whenComplete((v, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Writes any pending save for the given user, and waits for it to complete.
+     *
+     * @param uuid the uuid of the user
+     */
+    public void flushUser(UUID uuid) {
+        flush(this.users, uuid, this.implementation::saveUser);
+    }
+
+    /**
+     * Writes any pending save for the given group, and waits for it to complete.
+     *
+     * @param name the name of the group
+     */
+    public void flushGroup(String name) {
+        flush(this.groups, name.toLowerCase(), this.implementation::saveGroup);
+    }
+
+    private <K, T> void flush(Map<K, PendingSave<T>> pending, K key, Writer<T> writer) {
+        PendingSave<T> save;
+        boolean claimed;
+        synchronized (this.mutex) {
+            save = pending.get(key);
+            if (save == null) {
+                return;
+            }
+            claimed = save.claimed;
+            save.claimed = true;
+        }
+
+        if (claimed) {
+            save.await();
+        } else {
+            save.write(writer);
+        }
+    }
+
+    /**
+     * Writes all pending saves, and waits for them to complete.
+     */
+    public void flush() {
+        List<PendingSave<User>> users = new ArrayList<>();
+        List<PendingSave<Group>> groups = new ArrayList<>();
+        List<PendingSave<?>> inProgress = new ArrayList<>();
+        synchronized (this.mutex) {
+            this.flushScheduled = false;
+            this.flushRequested = false;
+            claim(this.users, users, inProgress);
+            claim(this.groups, groups, inProgress);
+        }
+
+        write(groups, this.implementation::saveGroups, this.implementation::saveGroup);
+        write(users, this.implementation::saveUsers, this.implementation::saveUser);
+
+        // wait for saves which were already being written by another thread
+        for (PendingSave<?> save : inProgress) {
+            save.await();
+        }
+    }
+
+    private static <K, T> void claim(Map<K, PendingSave<T>> pending, List<PendingSave<T>> claimed, List<PendingSave<?>> inProgress) {
+        for (PendingSave<T> save : pending.values()) {
+            if (save.claimed) {
+                inProgress.add(save);
+            } else {
+                save.claimed = true;
+                claimed.add(save);
+            }
+        }
+    }
+
+    private <T> void write(List<PendingSave<T>> saves, BatchWriter<T> batchWriter, Writer<T> writer) {
+        // bound the number of holders (and so locks & rows) in each batch
+        for (List<PendingSave<T>> batch : Lists.partition(saves, MAX_BATCH_SIZE)) {
+            writeBatch(batch, batchWriter, writer);
+        }
+    }
+
+    private <T> void writeBatch(List<PendingSave<T>> saves, BatchWriter<T> batchWriter, Writer<T> writer) {
+        if (saves.size() == 1) {
+            saves.get(0).write(writer);
+            return;
+        }
+
+        List<T> holders = new ArrayList<>(saves.size());
+        for (PendingSave<T> save : saves) {
+            holders.add(save.holder);
+        }
+
+        try {
+            batchWriter.write(holders);
+        } catch (Exception e) {
+            // write each save individually, so a single failure only fails its own requests
+            for (PendingSave<T> save : saves) {
+                save.write(writer);
+            }
+            return;
+        }
+
+        for (PendingSave<T> save : saves) {
+            save.complete(null);
+        }
+    }
+
+    /**
+     * Closes the buffer, writing all pending saves.
+     *
+     * <p>Saves requested after the buffer is closed are written directly.</p>
+     */
+    public void close() {
+        synchronized (this.mutex) {
+            this.closed = true;
+        }
+        flush();
+    }
+
+    private void requestFlush() {
+        synchronized (this.mutex) {
+            if (this.flushRequested) {
+                return;
+            }
+            this.flushRequested = true;
+        }
+        this.scheduler.executeAsync(this::flush);
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(T holder) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface BatchWriter<T> {
+        void write(Collection<T> holders) throws Exception;
+    }
+
+    private final class PendingSave<T> {
+        private final Map<?, PendingSave<T>> pending;
+        private final Object key;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /** The instance to write, guarded by mutex */
+        private T holder;
+
+        /** If a thread has taken responsibility for writing the save, guarded by mutex */
+        private boolean claimed = false;
+
+        PendingSave(Map<?, PendingSave<T>> pending, Object key, T holder) {
+            this.pending = pending;
+            this.key = key;
+            this.holder = holder;
+        }
+
+        /**
+         * Writes the save. Only called by the thread which claimed it.
+         *
+         * @param writer the writer
+         */
+        void write(Writer<T> writer) {
+            try {
+                writer.write(this.holder);
+            } catch (Exception e) {
+                complete(e);
+                return;
+            }
+            complete(null);
+        }
+
+        void complete(Exception failure) {
+            // remove before completing, so anything waiting on the save doesn't
+            // see it as pending once it continues
+            if (this.pending != null) {
+                synchronized (SaveBuffer.this.mutex) {
+                    this.pending.remove(this.key, this);
+                }
+            }
+
+            if (failure != null) {
+                this.future.completeExceptionally(failure);
+            } else {
+                this.future.complete(null);
+            }
+        }
+
+        /**
+         * Waits for the save to be written by the thread which claimed it.
+         */
+        void await() {
+            try {
+                this.future.join();
+            } catch (Exception e) {
+                // ignore, the failure is reported to the requesting futures
+            }
+        }
+    }
+
+    /**
+     * A future for a save request, which flushes the buffer when waited on.
+     */
+    private final class SaveFuture extends CompletableFuture<Void> {
+        private void flushIfPending() {
+            if (!isDone()) {
+                requestFlush();
+            }
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            flushIfPending();
+            return super.get();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            flushIfPending();
+            return super.get(timeout, unit);
+        }
+
+        @Override
+        public Void join() {
+            flushIfPending();
+            return super.join();
+        }
+    }
+}
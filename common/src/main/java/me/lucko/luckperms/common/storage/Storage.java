@@ -36,6 +36,7 @@ import me.lucko.luckperms.common.actionlog.Log;
 import me.lucko.luckperms.common.api.implementation.ApiStorage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
@@ -43,6 +44,9 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.util.ThrowingRunnable;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -51,6 +55,8 @@ import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -61,10 +67,26 @@ public class Storage {
 
     private final ApiStorage apiDelegate;
 
+    // loads which are currently in progress, shared with concurrent requests to load the same object
+    private final Map<UUID, CompletableFuture<User>> userLoads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<Group>>> groupLoads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<Track>>> trackLoads = new ConcurrentHashMap<>();
+
+    // the most recently started load of each object, which the next load of the object waits for
+    private final Map<UUID, CompletableFuture<?>> lastUserLoads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<?>> lastGroupLoads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<?>> lastTrackLoads = new ConcurrentHashMap<>();
+
+    // buffers user & group saves, or null if saves should be written immediately
+    private final @Nullable SaveBuffer saveBuffer;
+
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         this.plugin = plugin;
         this.implementation = implementation;
         this.apiDelegate = new ApiStorage(plugin, this);
+
+        int bufferTime = plugin.getConfiguration().get(ConfigKeys.SAVE_BUFFER_TIME);
+        this.saveBuffer = bufferTime > 0 ? new SaveBuffer(implementation, plugin.getBootstrap().getScheduler(), bufferTime) : null;
     }
 
     public StorageImplementation getImplementation() {
@@ -101,6 +123,81 @@ public class Storage {
         }, this.plugin.getBootstrap().getScheduler().async());
     }
 
+    /**
+     * Makes a future for the given load, or returns the future for a load of the same
+     * key which is already in progress.
+     *
+     * <p>Loads apply their result to the loaded object, so a new load isn't started until
+     * the previous load of the same key has completed. This ensures a load which read older
+     * data never applies its result after a later one.</p>
+     *
+     * @param inFlight the loads currently in progress
+     * @param lastLoads the most recently started load of each key
+     * @param key the key of the object being loaded
+     * @param supplier the load
+     * @param joinExisting if a load which is already in progress can be used. if false, a
+     *                     new load is started, and later requests will share it instead
+     * @param <K> the key type
+     * @param <T> the result type
+     * @return a future
+     */
+    private <K, T> CompletableFuture<T> makeSharedFuture(Map<K, CompletableFuture<T>> inFlight, Map<K, CompletableFuture<?>> lastLoads, K key, Callable<T> supplier, boolean joinExisting) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (joinExisting) {
+            CompletableFuture<T> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                // return a dependent future, so the caller can't complete the shared one
+                return existing.thenApply(Function.identity());
+            }
+        } else {
+            inFlight.put(key, future);
+        }
+
+        CompletableFuture<?> previous = lastLoads.put(key, future);
+        CompletableFuture<T> load = previous == null ? makeFuture(supplier) : afterCompletion(previous).thenCompose(v -> makeFuture(supplier));
+
+        load.whenComplete((result, ex) -> {
+            // remove before completing, so requests made after the result is
+            // available don't receive it, and load again instead
+            inFlight.remove(key, future);
+            lastLoads.remove(key, future);
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gets a future which completes, normally, once the given future has completed.
+     *
+     * @param future the future
+     * @return a future
+     */
+    private static CompletableFuture<Void> afterCompletion(CompletableFuture<?> future) {
+        return future.handle((result, ex) -> null);
+    }
+
+    private void flushUserSave(UUID uuid) {
+        if (this.saveBuffer != null) {
+            this.saveBuffer.flushUser(uuid);
+        }
+    }
+
+    private void flushGroupSave(String name) {
+        if (this.saveBuffer != null) {
+            this.saveBuffer.flushGroup(name);
+        }
+    }
+
+    private void flushSaves() {
+        if (this.saveBuffer != null) {
+            this.saveBuffer.flush();
+        }
+    }
+
     public String getName() {
         return this.implementation.getImplementationName();
     }
@@ -115,6 +212,16 @@ public class Storage {
     }
 
     public void shutdown() {
+        // write any buffered saves before the implementation is shutdown
+        if (this.saveBuffer != null) {
+            try {
+                this.saveBuffer.close();
+            } catch (Exception e) {
+                this.plugin.getLogger().severe("Failed to write buffered saves");
+                e.printStackTrace();
+            }
+        }
+
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -136,21 +243,101 @@ public class Storage {
     }
 
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return makeFuture(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return makeFuture(() -> {
+            flushSaves();
+            this.implementation.applyBulkUpdate(bulkUpdate);
+        });
     }
 
     public CompletableFuture<User> loadUser(UUID uuid, String username) {
-        return makeFuture(() -> {
+        return loadUser(uuid, username, true);
+    }
+
+    /**
+     * Loads a user, without using a load which is already in progress.
+     *
+     * <p>Used when the stored data is known to have changed since any such load started.</p>
+     *
+     * @param uuid the uuid of the user
+     * @return a future
+     */
+    public CompletableFuture<User> reloadUser(UUID uuid) {
+        return loadUser(uuid, null, false);
+    }
+
+    private CompletableFuture<User> loadUser(UUID uuid, String username, boolean joinExisting) {
+        CompletableFuture<User> future = makeSharedFuture(this.userLoads, this.lastUserLoads, uuid, () -> {
+            // write any buffered save first, so the load doesn't replace unsaved changes
+            flushUserSave(uuid);
             User user = this.implementation.loadUser(uuid, username);
             if (user != null) {
                 this.plugin.getEventFactory().handleUserLoad(user);
             }
             return user;
+        }, joinExisting);
+
+        // the load may have been started by a request without a username
+        if (username != null) {
+            future = future.thenApply(user -> {
+                if (user != null) {
+                    user.setName(username, false);
+                }
+                return user;
+            });
+        }
+        return future;
+    }
+
+    public CompletableFuture<Map<UUID, User>> loadUsers(Set<UUID> uniqueIds) {
+        CompletableFuture<Map<UUID, User>> future = new CompletableFuture<>();
+
+        // start once the previous loads of the users have completed (see #makeSharedFuture)
+        List<CompletableFuture<?>> previous = new ArrayList<>();
+        for (UUID uuid : uniqueIds) {
+            CompletableFuture<?> load = this.lastUserLoads.put(uuid, future);
+            if (load != null) {
+                previous.add(afterCompletion(load));
+            }
+        }
+
+        CompletableFuture<Void> ready = CompletableFuture.allOf(previous.toArray(new CompletableFuture[0]));
+        ready.thenCompose(v -> makeFuture(() -> {
+            for (UUID uuid : uniqueIds) {
+                flushUserSave(uuid);
+
+                // loads already in progress may have read the data before this load, so
+                // shouldn't be used by later requests
+                this.userLoads.remove(uuid);
+            }
+            Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
+            for (User user : users.values()) {
+                this.plugin.getEventFactory().handleUserLoad(user);
+            }
+            return users;
+        })).whenComplete((users, ex) -> {
+            for (UUID uuid : uniqueIds) {
+                this.lastUserLoads.remove(uuid, future);
+            }
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(users);
+            }
         });
+        return future;
     }
 
     public CompletableFuture<Void> saveUser(User user) {
-        return makeFuture(() -> this.implementation.saveUser(user));
+        CompletableFuture<Void> future;
+        if (this.saveBuffer != null) {
+            future = this.saveBuffer.saveUser(user);
+        } else {
+            future = makeFuture(() -> this.implementation.saveUser(user));
+        }
+
+        // loads already in progress may have read the data before it was saved
+        future.whenComplete((v, ex) -> this.userLoads.remove(user.getUuid()));
+        return future;
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
@@ -159,6 +346,7 @@ public class Storage {
 
     public CompletableFuture<List<HeldPermission<UUID>>> getUsersWithPermission(Constraint constraint) {
         return makeFuture(() -> {
+            flushSaves();
             List<HeldPermission<UUID>> result = this.implementation.getUsersWithPermission(constraint);
             result.removeIf(entry -> entry.asNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -167,6 +355,7 @@ public class Storage {
 
     public CompletableFuture<Group> createAndLoadGroup(String name, CreationCause cause) {
         return makeFuture(() -> {
+            flushGroupSave(name);
             Group group = this.implementation.createAndLoadGroup(name);
             if (group != null) {
                 this.plugin.getEventFactory().handleGroupCreate(group, cause);
@@ -176,28 +365,44 @@ public class Storage {
     }
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
-        return makeFuture(() -> {
+        return makeSharedFuture(this.groupLoads, this.lastGroupLoads, name.toLowerCase(), () -> {
+            flushGroupSave(name);
             Optional<Group> group = this.implementation.loadGroup(name);
             if (group.isPresent()) {
                 this.plugin.getEventFactory().handleGroupLoad(group.get());
             }
             return group;
-        });
+        }, true);
     }
 
     public CompletableFuture<Void> loadAllGroups() {
         return makeFuture(() -> {
+            flushSaves();
+
+            // loads already in progress may have read the data before this load, so
+            // shouldn't be used by later requests
+            this.groupLoads.clear();
             this.implementation.loadAllGroups();
             this.plugin.getEventFactory().handleGroupLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
-        return makeFuture(() -> this.implementation.saveGroup(group));
+        CompletableFuture<Void> future;
+        if (this.saveBuffer != null) {
+            future = this.saveBuffer.saveGroup(group);
+        } else {
+            future = makeFuture(() -> this.implementation.saveGroup(group));
+        }
+
+        // loads already in progress may have read the data before it was saved
+        future.whenComplete((v, ex) -> this.groupLoads.remove(group.getName()));
+        return future;
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
         return makeFuture(() -> {
+            flushGroupSave(group.getName());
             this.implementation.deleteGroup(group);
             this.plugin.getEventFactory().handleGroupDelete(group, cause);
         });
@@ -205,6 +410,7 @@ public class Storage {
 
     public CompletableFuture<List<HeldPermission<String>>> getGroupsWithPermission(Constraint constraint) {
         return makeFuture(() -> {
+            flushSaves();
             List<HeldPermission<String>> result = this.implementation.getGroupsWithPermission(constraint);
             result.removeIf(entry -> entry.asNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -222,24 +428,31 @@ public class Storage {
     }
 
     public CompletableFuture<Optional<Track>> loadTrack(String name) {
-        return makeFuture(() -> {
+        return makeSharedFuture(this.trackLoads, this.lastTrackLoads, name.toLowerCase(), () -> {
             Optional<Track> track = this.implementation.loadTrack(name);
             if (track.isPresent()) {
                 this.plugin.getEventFactory().handleTrackLoad(track.get());
             }
             return track;
-        });
+        }, true);
     }
 
     public CompletableFuture<Void> loadAllTracks() {
         return makeFuture(() -> {
+            // loads already in progress may have read the data before this load, so
+            // shouldn't be used by later requests
+            this.trackLoads.clear();
             this.implementation.loadAllTracks();
             this.plugin.getEventFactory().handleTrackLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveTrack(Track track) {
-        return makeFuture(() -> this.implementation.saveTrack(track));
+        CompletableFuture<Void> future = makeFuture(() -> this.implementation.saveTrack(track));
+
+        // loads already in progress may have read the data before it was saved
+        future.whenComplete((v, ex) -> this.trackLoads.remove(track.getName()));
+        return future;
     }
 
     public CompletableFuture<Void> deleteTrack(Track track, DeletionCause cause) {
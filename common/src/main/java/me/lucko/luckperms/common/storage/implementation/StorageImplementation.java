@@ -38,7 +38,9 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -66,8 +68,22 @@ public interface StorageImplementation {
 
     User loadUser(UUID uuid, String username) throws Exception;
 
+    default Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
+        Map<UUID, User> users = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            users.put(uniqueId, loadUser(uniqueId, null));
+        }
+        return users;
+    }
+
     void saveUser(User user) throws Exception;
 
+    default void saveUsers(Collection<User> users) throws Exception {
+        for (User user : users) {
+            saveUser(user);
+        }
+    }
+
     Set<UUID> getUniqueUsers() throws Exception;
 
     List<HeldPermission<UUID>> getUsersWithPermission(Constraint constraint) throws Exception;
@@ -80,6 +96,12 @@ public interface StorageImplementation {
 
     void saveGroup(Group group) throws Exception;
 
+    default void saveGroups(Collection<Group> groups) throws Exception {
+        for (Group group : groups) {
+            saveGroup(group);
+        }
+    }
+
     void deleteGroup(Group group) throws Exception;
 
     List<HeldPermission<String>> getGroupsWithPermission(Constraint constraint) throws Exception;
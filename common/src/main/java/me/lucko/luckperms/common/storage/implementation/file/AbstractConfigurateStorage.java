@@ -68,8 +68,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -79,6 +82,11 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractConfigurateStorage implements StorageImplementation {
 
+    /**
+     * The maximum number of threads used to read users in parallel
+     */
+    private static final int LOAD_USERS_PARALLELISM = 4;
+
     protected final LuckPermsPlugin plugin;
     private final String implementationName;
 
@@ -223,6 +231,82 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         return user;
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) {
+        // each user is read from its own file (or section), so they can be read in parallel,
+        // using this thread & helpers on the plugins async executor
+        ParallelUserLoad load = new ParallelUserLoad(uniqueIds);
+        int helpers = Math.min(LOAD_USERS_PARALLELISM, uniqueIds.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            this.plugin.getBootstrap().getScheduler().async().execute(load);
+        }
+        load.run();
+        return load.await();
+    }
+
+    /**
+     * Loads a set of users, shared between any number of threads.
+     *
+     * <p>The thread which started the load also runs it, and then only waits for the
+     * threads which are currently loading users. Helpers which are still queued when
+     * all users have been taken do nothing, so a busy executor can't block the load.</p>
+     */
+    private final class ParallelUserLoad implements Runnable {
+        private final Queue<UUID> queue;
+        private final Map<UUID, User> users = new ConcurrentHashMap<>();
+
+        /** The number of threads currently running the load, guarded by this */
+        private int active = 0;
+
+        /** The first exception thrown, guarded by this */
+        private RuntimeException failure = null;
+
+        ParallelUserLoad(Set<UUID> uniqueIds) {
+            this.queue = new ConcurrentLinkedQueue<>(uniqueIds);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                this.active++;
+            }
+            try {
+                UUID uuid;
+                while ((uuid = this.queue.poll()) != null) {
+                    this.users.put(uuid, loadUser(uuid, null));
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    if (this.failure == null) {
+                        this.failure = e;
+                    } else {
+                        this.failure.addSuppressed(e);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    this.active--;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized Map<UUID, User> await() {
+            while (this.active > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return this.users;
+        }
+    }
+
     @Override
     public void saveUser(User user) {
         user.getIoLock().lock();
@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.storage.implementation.mongodb;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
@@ -65,8 +66,11 @@ import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
 import me.lucko.luckperms.common.storage.misc.StorageCredentials;
 
 import org.bson.Document;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -78,6 +82,10 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+
+    // the maximum number of users to find in a single query when loading users in bulk
+    private static final int BULK_LOAD_CHUNK_SIZE = 500;
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -269,38 +277,81 @@ public class MongoStorage implements StorageImplementation {
         try {
             MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
             try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUuid())).iterator()) {
-                if (cursor.hasNext()) {
-                    // User exists, let's load.
-                    Document d = cursor.next();
+                applyUserDocument(c, user, cursor.hasNext() ? cursor.next() : null);
+            }
+        } finally {
+            user.invalidateCachedData();
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
 
-                    String name = d.getString("name");
-                    user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) {
+        Map<UUID, User> users = new HashMap<>();
 
-                    Set<Node> nodes = nodesFromDoc(d).stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
-                    user.setNodes(NodeMapType.ENDURING, nodes);
-                    user.setName(name, true);
+        // sort the uuids, so the users are always locked in the same order
+        List<UUID> sorted = new ArrayList<>(uniqueIds);
+        Collections.sort(sorted);
 
-                    boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    if (user.getName().isPresent() && (name == null || !user.getName().get().equalsIgnoreCase(name))) {
-                        save = true;
-                    }
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        for (List<UUID> chunk : Lists.partition(sorted, BULK_LOAD_CHUNK_SIZE)) {
+            List<User> chunkUsers = new ArrayList<>(chunk.size());
+            for (UUID uuid : chunk) {
+                User user = this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, null));
+                user.getIoLock().lock();
+                chunkUsers.add(user);
+            }
 
-                    if (save | user.auditTemporaryPermissions()) {
-                        c.replaceOne(new Document("_id", user.getUuid()), userToDoc(user));
-                    }
-                } else {
-                    if (this.plugin.getUserManager().shouldSave(user)) {
-                        user.clearNodes();
-                        user.getPrimaryGroup().setStoredValue(null);
-                        this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            try {
+                Map<UUID, Document> documents = new HashMap<>();
+                try (MongoCursor<Document> cursor = c.find(Filters.in("_id", chunk)).iterator()) {
+                    while (cursor.hasNext()) {
+                        Document d = cursor.next();
+                        documents.put(d.get("_id", UUID.class), d);
                     }
                 }
+
+                for (User user : chunkUsers) {
+                    applyUserDocument(c, user, documents.get(user.getUuid()));
+                    users.put(user.getUuid(), user);
+                }
+            } finally {
+                for (User user : chunkUsers) {
+                    user.invalidateCachedData();
+                    user.getIoLock().unlock();
+                }
+            }
+        }
+
+        return users;
+    }
+
+    private void applyUserDocument(MongoCollection<Document> c, User user, @Nullable Document d) {
+        if (d != null) {
+            // User exists, let's load.
+            String name = d.getString("name");
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+
+            Set<Node> nodes = nodesFromDoc(d).stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
+            user.setNodes(NodeMapType.ENDURING, nodes);
+            user.setName(name, true);
+
+            boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            if (user.getName().isPresent() && (name == null || !user.getName().get().equalsIgnoreCase(name))) {
+                save = true;
+            }
+
+            if (save | user.auditTemporaryPermissions()) {
+                c.replaceOne(new Document("_id", user.getUuid()), userToDoc(user));
+            }
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
             }
-        } finally {
-            user.invalidateCachedData();
-            user.getIoLock().unlock();
         }
-        return user;
     }
 
     @Override
@@ -40,6 +40,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -133,11 +134,21 @@ public class SplitStorage implements StorageImplementation {
         return this.backing.get(this.types.get(SplitStorageType.USER)).loadUser(uuid, username);
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
+        return this.backing.get(this.types.get(SplitStorageType.USER)).loadUsers(uniqueIds);
+    }
+
     @Override
     public void saveUser(User user) throws Exception {
         this.backing.get(this.types.get(SplitStorageType.USER)).saveUser(user);
     }
 
+    @Override
+    public void saveUsers(Collection<User> users) throws Exception {
+        this.backing.get(this.types.get(SplitStorageType.USER)).saveUsers(users);
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws Exception {
         return this.backing.get(this.types.get(SplitStorageType.USER)).getUniqueUsers();
@@ -168,6 +179,11 @@ public class SplitStorage implements StorageImplementation {
         this.backing.get(this.types.get(SplitStorageType.GROUP)).saveGroup(group);
     }
 
+    @Override
+    public void saveGroups(Collection<Group> groups) throws Exception {
+        this.backing.get(this.types.get(SplitStorageType.GROUP)).saveGroups(groups);
+    }
+
     @Override
     public void deleteGroup(Group group) throws Exception {
         this.backing.get(this.types.get(SplitStorageType.GROUP)).deleteGroup(group);
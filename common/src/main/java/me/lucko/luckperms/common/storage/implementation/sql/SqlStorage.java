@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.storage.implementation.sql;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.reflect.TypeToken;
 
@@ -51,6 +52,7 @@ import me.lucko.luckperms.common.node.model.NodeHeldPermission;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.file.H2ConnectionFactory;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.file.SQLiteConnectionFactory;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.PostgreConnectionFactory;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
@@ -62,16 +64,22 @@ import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -83,6 +91,7 @@ public class SqlStorage implements StorageImplementation {
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}user_permissions WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM {prefix}user_permissions WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO {prefix}user_permissions(uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT uuid, permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE uuid IN ({uuids})";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM {prefix}user_permissions";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE ";
 
@@ -93,13 +102,17 @@ public class SqlStorage implements StorageImplementation {
     private static final String PLAYER_SELECT_ALL_UUIDS_BY_USERNAME = "SELECT uuid FROM {prefix}players WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_DELETE_ALL_UUIDS_BY_USERNAME = "DELETE FROM {prefix}players WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_SELECT_BY_UUID = "SELECT username, primary_group FROM {prefix}players WHERE uuid=?";
-    private static final String PLAYER_SELECT_PRIMARY_GROUP_BY_UUID = "SELECT primary_group FROM {prefix}players WHERE uuid=? LIMIT 1";
+    private static final String PLAYER_SELECT_MULTIPLE_BY_UUID = "SELECT uuid, username, primary_group FROM {prefix}players WHERE uuid IN ({uuids})";
     private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE {prefix}players SET primary_group=? WHERE uuid=?";
+    private static final String MYSQL_PLAYER_UPSERT = "INSERT INTO {prefix}players (uuid, username, primary_group) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE primary_group=VALUES(primary_group)";
+    private static final String SQLITE_PLAYER_UPSERT = "INSERT INTO {prefix}players (uuid, username, primary_group) VALUES(?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET primary_group=excluded.primary_group";
+    private static final String POSTGRESQL_PLAYER_UPSERT = "INSERT INTO {prefix}players (uuid, username, primary_group) VALUES(?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET primary_group=EXCLUDED.primary_group";
 
     private static final String GROUP_PERMISSIONS_SELECT = "SELECT permission, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE name=?";
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM {prefix}group_permissions WHERE name=?";
     private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}group_permissions WHERE name=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO {prefix}group_permissions(name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, permission, value, server, world, expiry, contexts FROM {prefix}group_permissions ORDER BY name";
     private static final String GROUP_PERMISSIONS_SELECT_PERMISSION = "SELECT name, permission, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE ";
 
     private static final String GROUP_SELECT_ALL = "SELECT name FROM '{prefix}groups'";
@@ -118,6 +131,9 @@ public class SqlStorage implements StorageImplementation {
     private static final String ACTION_INSERT = "INSERT INTO {prefix}actions(time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM {prefix}actions";
 
+    // the maximum number of users to select in a single query when loading users in bulk
+    private static final int BULK_LOAD_CHUNK_SIZE = 500;
+
     private final LuckPermsPlugin plugin;
     
     private final ConnectionFactory connectionFactory;
@@ -147,6 +163,23 @@ public class SqlStorage implements StorageImplementation {
         return this.statementProcessor;
     }
 
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        // some databases store unquoted identifiers in upper case
+        for (String tableName : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, tableName, false, true)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    if (indexName != null && indexName.equalsIgnoreCase(index)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     private boolean tableExists(String table) throws SQLException {
         try (Connection connection = this.connectionFactory.getConnection()) {
             try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
@@ -213,6 +246,44 @@ public class SqlStorage implements StorageImplementation {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // schema v2 - index the permission column, so searches & bulk updates don't have to scan the whole table
+        try {
+            try (Connection connection = this.connectionFactory.getConnection()) {
+                createPermissionIndex(connection, "{prefix}user_permissions");
+                createPermissionIndex(connection, "{prefix}group_permissions");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void createPermissionIndex(Connection connection, String table) throws SQLException {
+        String index = table + "_permission";
+        if (indexExists(connection, this.statementProcessor.apply(table), this.statementProcessor.apply(index))) {
+            return;
+        }
+
+        String column;
+        switch (this.connectionFactory.getImplementationName()) {
+            case "MySQL":
+            case "MariaDB":
+                // older versions limit index keys to 767 bytes, so only index a prefix of the column
+                column = "permission(191)";
+                break;
+            case "PostgreSQL":
+                // allows the index to be used for LIKE comparisons, as well as equality
+                column = "permission varchar_pattern_ops";
+                break;
+            default:
+                column = "permission";
+                break;
+        }
+
+        this.plugin.getLogger().info("Creating index on the permission column of " + this.statementProcessor.apply(table) + ", this may take a while...");
+        try (Statement s = connection.createStatement()) {
+            s.execute(this.statementProcessor.apply("CREATE INDEX '" + index + "' ON '" + table + "' (" + column + ")"));
+        }
     }
 
     @Override
@@ -279,6 +350,9 @@ public class SqlStorage implements StorageImplementation {
                 try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
                     ps.execute();
                 }
+
+                // the stored data no longer matches what was last persisted
+                this.plugin.getUserManager().getAll().values().forEach(u -> u.setPersistedNodes(null));
             }
 
             if (bulkUpdate.getDataType().isIncludingGroups()) {
@@ -286,6 +360,8 @@ public class SqlStorage implements StorageImplementation {
                 try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
                     ps.execute();
                 }
+
+                this.plugin.getGroupManager().getAll().values().forEach(g -> g.setPersistedNodes(null));
             }
         }
     }
@@ -295,31 +371,15 @@ public class SqlStorage implements StorageImplementation {
         User user = this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, username));
         user.getIoLock().lock();
         try {
-            List<NodeDataContainer> data = new ArrayList<>();
+            Set<NodeDataContainer> data;
             String primaryGroup = null;
             String userName = null;
 
-            // Collect user permissions
             try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
-                    ps.setString(1, user.getUuid().toString());
+                // Collect user permissions
+                data = readNodes(c, USER_PERMISSIONS_SELECT, user.getUuid().toString());
 
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            data.add(deserializeNode(permission, value, server, world, expiry, contexts));
-                        }
-                    }
-                }
-            }
-
-            // Collect user meta (username & primary group)
-            try (Connection c = this.connectionFactory.getConnection()) {
+                // Collect user meta (username & primary group)
                 try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_BY_UUID))) {
                     ps.setString(1, user.getUuid().toString());
 
@@ -332,34 +392,7 @@ public class SqlStorage implements StorageImplementation {
                 }
             }
 
-            // update username & primary group
-            if (primaryGroup == null) {
-                primaryGroup = NodeFactory.DEFAULT_GROUP_NAME;
-            }
-            user.getPrimaryGroup().setStoredValue(primaryGroup);
-
-            // Update their username to what was in the storage if the one in the local instance is null
-            user.setName(userName, true);
-
-            // If the user has any data in storage
-            if (!data.isEmpty()) {
-                Set<Node> nodes = data.stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
-                user.setNodes(NodeMapType.ENDURING, nodes);
-
-                // Save back to the store if data they were given any defaults or had permissions expire
-                if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryPermissions()) {
-                    // This should be fine, as the lock will be acquired by the same thread.
-                    saveUser(user);
-                }
-
-            } else {
-                // User has no data in storage.
-                if (this.plugin.getUserManager().shouldSave(user)) {
-                    user.clearNodes();
-                    user.getPrimaryGroup().setStoredValue(null);
-                    this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                }
-            }
+            applyUserData(user, data, userName, primaryGroup);
         } finally {
             user.invalidateCachedData();
             user.getIoLock().unlock();
@@ -368,119 +401,183 @@ public class SqlStorage implements StorageImplementation {
     }
 
     @Override
-    public void saveUser(User user) throws SQLException {
-        user.getIoLock().lock();
-        try {
-            // Empty data - just delete from the DB.
-            if (!this.plugin.getUserManager().shouldSave(user)) {
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws SQLException {
+        Map<UUID, User> users = new HashMap<>();
+
+        // sort the uuids, so the users are always locked in the same order
+        List<UUID> sorted = new ArrayList<>(uniqueIds);
+        Collections.sort(sorted);
+
+        for (List<UUID> chunk : Lists.partition(sorted, BULK_LOAD_CHUNK_SIZE)) {
+            List<User> chunkUsers = new ArrayList<>(chunk.size());
+            for (UUID uuid : chunk) {
+                User user = this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, null));
+                user.getIoLock().lock();
+                chunkUsers.add(user);
+            }
+
+            try {
+                Map<UUID, Set<NodeDataContainer>> data = new HashMap<>();
+                Map<UUID, String> userNames = new HashMap<>();
+                Map<UUID, String> primaryGroups = new HashMap<>();
+
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
                 try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
-                        ps.setString(1, user.getUuid().toString());
-                        ps.execute();
-                    }
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
-                        ps.setString(1, NodeFactory.DEFAULT_GROUP_NAME);
-                        ps.setString(2, user.getUuid().toString());
-                        ps.execute();
+                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT_MULTIPLE.replace("{uuids}", placeholders)))) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            ps.setString(i + 1, chunk.get(i).toString());
+                        }
+
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                                String permission = rs.getString("permission");
+                                boolean value = rs.getBoolean("value");
+                                String server = rs.getString("server");
+                                String world = rs.getString("world");
+                                long expiry = rs.getLong("expiry");
+                                String contexts = rs.getString("contexts");
+                                data.computeIfAbsent(uuid, x -> new HashSet<>()).add(deserializeNode(permission, value, server, world, expiry, contexts));
+                            }
+                        }
                     }
-                }
-                return;
-            }
 
-            // Get a snapshot of current data.
-            Set<NodeDataContainer> remote = new HashSet<>();
-            try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
-                    ps.setString(1, user.getUuid().toString());
+                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_MULTIPLE_BY_UUID.replace("{uuids}", placeholders)))) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            ps.setString(i + 1, chunk.get(i).toString());
+                        }
 
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            remote.add(deserializeNode(permission, value, server, world, expiry, contexts));
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                                userNames.put(uuid, rs.getString("username"));
+                                primaryGroups.put(uuid, rs.getString("primary_group"));
+                            }
                         }
                     }
                 }
+
+                for (User user : chunkUsers) {
+                    UUID uuid = user.getUuid();
+                    applyUserData(user, data.getOrDefault(uuid, new HashSet<>()), userNames.get(uuid), primaryGroups.get(uuid));
+                    users.put(uuid, user);
+                }
+            } finally {
+                for (User user : chunkUsers) {
+                    user.invalidateCachedData();
+                    user.getIoLock().unlock();
+                }
             }
+        }
 
-            Set<NodeDataContainer> local = user.enduringData().immutable().values().stream().map(NodeDataContainer::fromNode).collect(Collectors.toSet());
+        return users;
+    }
 
-            Map.Entry<Set<NodeDataContainer>, Set<NodeDataContainer>> diff = compareSets(local, remote);
+    private void applyUserData(User user, Set<NodeDataContainer> data, String userName, String primaryGroup) throws SQLException {
+        // update username & primary group
+        if (primaryGroup == null) {
+            primaryGroup = NodeFactory.DEFAULT_GROUP_NAME;
+        }
+        user.getPrimaryGroup().setStoredValue(primaryGroup);
 
-            Set<NodeDataContainer> toAdd = diff.getKey();
-            Set<NodeDataContainer> toRemove = diff.getValue();
+        // Update their username to what was in the storage if the one in the local instance is null
+        user.setName(userName, true);
 
-            if (!toRemove.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeDataContainer nd : toRemove) {
-                            ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
+        // record what is now persisted, so it doesn't need to be read again when saving
+        user.setPersistedNodes(data);
+
+        // If the user has any data in storage
+        if (!data.isEmpty()) {
+            Set<Node> nodes = data.stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
+            user.setNodes(NodeMapType.ENDURING, nodes);
+
+            // Save back to the store if data they were given any defaults or had permissions expire
+            if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryPermissions()) {
+                // This should be fine, as the lock will be acquired by the same thread.
+                saveUser(user);
             }
 
-            if (!toAdd.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_INSERT))) {
-                        for (NodeDataContainer nd : toAdd) {
-                            ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
+        } else {
+            // User has no data in storage.
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
             }
+        }
+    }
 
-            try (Connection c = this.connectionFactory.getConnection()) {
-                boolean hasPrimaryGroupSaved;
+    @Override
+    public void saveUser(User user) throws SQLException {
+        saveUsers(Collections.singletonList(user));
+    }
 
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_PRIMARY_GROUP_BY_UUID))) {
-                    ps.setString(1, user.getUuid().toString());
-                    try (ResultSet rs = ps.executeQuery()) {
-                        hasPrimaryGroupSaved = rs.next();
-                    }
-                }
+    @Override
+    public void saveUsers(Collection<User> users) throws SQLException {
+        // lock in a consistent order, to avoid deadlocks with other bulk operations
+        List<User> sorted = new ArrayList<>(users);
+        sorted.sort(Comparator.comparing(User::getUuid));
 
-                if (hasPrimaryGroupSaved) {
-                    // update
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
-                        ps.setString(1, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
-                        ps.setString(2, user.getUuid().toString());
-                        ps.execute();
-                    }
-                } else {
-                    // insert
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
-                        ps.setString(1, user.getUuid().toString());
-                        ps.setString(2, user.getName().orElse("null").toLowerCase());
-                        ps.setString(3, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
-                        ps.execute();
-                    }
+        for (User user : sorted) {
+            user.getIoLock().lock();
+        }
+        try {
+            List<Set<NodeDataContainer>> written = new ArrayList<>(sorted.size());
+            runInTransaction(c -> {
+                for (User user : sorted) {
+                    written.add(writeUser(c, user));
                 }
-
+            });
+            for (int i = 0; i < sorted.size(); i++) {
+                sorted.get(i).setPersistedNodes(written.get(i));
             }
+        } catch (SQLException e) {
+            // the state of the stored data is unknown, so replace it in full next time
+            for (User user : sorted) {
+                user.setPersistedNodes(null);
+            }
+            throw e;
         } finally {
-            user.getIoLock().unlock();
+            for (User user : sorted) {
+                user.getIoLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the changes to a users data since it was last persisted.
+     *
+     * @param c the connection
+     * @param user the user
+     * @return the data which is now persisted
+     * @throws SQLException if an error occurs
+     */
+    private Set<NodeDataContainer> writeUser(Connection c, User user) throws SQLException {
+        String uuid = user.getUuid().toString();
+
+        // Empty data - just delete from the DB.
+        if (!this.plugin.getUserManager().shouldSave(user)) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
+                ps.setString(1, uuid);
+                ps.execute();
+            }
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
+                ps.setString(1, NodeFactory.DEFAULT_GROUP_NAME);
+                ps.setString(2, uuid);
+                ps.execute();
+            }
+            return new HashSet<>();
+        }
+
+        Set<NodeDataContainer> local = user.enduringData().immutable().values().stream().map(NodeDataContainer::fromNode).collect(Collectors.toSet());
+        Set<NodeDataContainer> persisted = user.getPersistedNodes();
+        if (persisted != null) {
+            writeChanges(c, USER_PERMISSIONS_DELETE_SPECIFIC, USER_PERMISSIONS_INSERT, uuid, local, persisted);
+        } else {
+            replaceNodes(c, USER_PERMISSIONS_DELETE, USER_PERMISSIONS_INSERT, uuid, local);
         }
+        writePlayer(c, user);
+        return local;
     }
 
     @Override
@@ -499,10 +596,16 @@ public class SqlStorage implements StorageImplementation {
         return uuids;
     }
 
+    private static void appendNotExpired(PreparedStatementBuilder builder) {
+        // expired entries are removed from the results anyway, so don't bother selecting them
+        builder.append(" AND (expiry = 0 OR expiry >= " + (System.currentTimeMillis() / 1000L) + ")");
+    }
+
     @Override
     public List<HeldPermission<UUID>> getUsersWithPermission(Constraint constraint) throws SQLException {
         PreparedStatementBuilder builder = new PreparedStatementBuilder().append(USER_PERMISSIONS_SELECT_PERMISSION);
         constraint.appendSql(builder, "permission");
+        appendNotExpired(builder);
 
         List<HeldPermission<UUID>> held = new ArrayList<>();
         try (Connection c = this.connectionFactory.getConnection()) {
@@ -576,32 +679,11 @@ public class SqlStorage implements StorageImplementation {
         Group group = this.plugin.getGroupManager().getOrMake(name);
         group.getIoLock().lock();
         try {
-            List<NodeDataContainer> data = new ArrayList<>();
-
+            Set<NodeDataContainer> data;
             try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT))) {
-                    ps.setString(1, group.getName());
-
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            data.add(deserializeNode(permission, value, server, world, expiry, contexts));
-                        }
-                    }
-                }
-            }
-
-            if (!data.isEmpty()) {
-                Set<Node> nodes = data.stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
-                group.setNodes(NodeMapType.ENDURING, nodes);
-            } else {
-                group.clearNodes();
+                data = readNodes(c, GROUP_PERMISSIONS_SELECT, group.getName());
             }
+            applyGroupData(group, data);
         } finally {
             group.invalidateCachedData();
             group.getIoLock().unlock();
@@ -609,119 +691,180 @@ public class SqlStorage implements StorageImplementation {
         return Optional.of(group);
     }
 
+    private static void applyGroupData(Group group, Set<NodeDataContainer> data) {
+        group.setPersistedNodes(data);
+
+        if (!data.isEmpty()) {
+            Set<Node> nodes = data.stream().map(NodeDataContainer::toNode).collect(Collectors.toSet());
+            group.setNodes(NodeMapType.ENDURING, nodes);
+        } else {
+            group.clearNodes();
+        }
+    }
+
     @Override
     public void loadAllGroups() throws SQLException {
-        List<String> groups = new ArrayList<>();
+        Set<String> names = new HashSet<>();
         try (Connection c = this.connectionFactory.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        groups.add(rs.getString("name").toLowerCase());
+                        names.add(rs.getString("name").toLowerCase());
                     }
                 }
             }
         }
 
-        boolean success = true;
-        for (String g : groups) {
-            try {
-                loadGroup(g);
-            } catch (Exception e) {
-                e.printStackTrace();
-                success = false;
-            }
+        // lock every group before reading its data, so a save can't be made in between & then be undone
+        // locks are taken in a consistent order, to avoid deadlocks with other bulk operations
+        Map<String, Group> groups = new TreeMap<>();
+        for (String name : names) {
+            groups.put(name, this.plugin.getGroupManager().getOrMake(name));
         }
-
-        if (!success) {
-            throw new RuntimeException("Exception occurred whilst loading a group");
+        for (Group group : groups.values()) {
+            group.getIoLock().lock();
         }
 
-        GroupManager<?> gm = this.plugin.getGroupManager();
-        gm.getAll().values().stream()
-                .filter(g -> !groups.contains(g.getName()))
-                .forEach(gm::unload);
-    }
-
-    @Override
-    public void saveGroup(Group group) throws SQLException {
-        group.getIoLock().lock();
+        boolean success = true;
         try {
-            // Empty data, just delete.
-            if (group.enduringData().immutable().isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE))) {
-                        ps.setString(1, group.getName());
-                        ps.execute();
-                    }
-                }
-                return;
-            }
-
-            // Get a snapshot of current data
-            Set<NodeDataContainer> remote = new HashSet<>();
+            Set<String> loaded = new HashSet<>();
             try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT))) {
-                    ps.setString(1, group.getName());
-
+                // read the data for all groups in one ordered pass, rather than querying for each group.
+                // the rows for each group are applied as soon as the scan moves past them
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT_ALL))) {
                     try (ResultSet rs = ps.executeQuery()) {
+                        String current = null;
+                        Set<NodeDataContainer> data = new HashSet<>();
                         while (rs.next()) {
+                            String name = rs.getString("name").toLowerCase();
+                            if (!groups.containsKey(name)) {
+                                // the group doesn't exist
+                                continue;
+                            }
+
+                            if (!name.equals(current)) {
+                                if (current != null) {
+                                    success &= applyLoadedGroupData(groups.get(current), data);
+                                    loaded.add(current);
+                                }
+                                current = name;
+                                data = new HashSet<>();
+                            }
+
                             String permission = rs.getString("permission");
                             boolean value = rs.getBoolean("value");
                             String server = rs.getString("server");
                             String world = rs.getString("world");
                             long expiry = rs.getLong("expiry");
                             String contexts = rs.getString("contexts");
-                            remote.add(deserializeNode(permission, value, server, world, expiry, contexts));
+                            data.add(deserializeNode(permission, value, server, world, expiry, contexts));
+                        }
+
+                        if (current != null) {
+                            success &= applyLoadedGroupData(groups.get(current), data);
+                            loaded.add(current);
                         }
                     }
                 }
             }
 
-            Set<NodeDataContainer> local = group.enduringData().immutable().values().stream().map(NodeDataContainer::fromNode).collect(Collectors.toSet());
+            // groups which don't have any data
+            for (Map.Entry<String, Group> entry : groups.entrySet()) {
+                if (!loaded.contains(entry.getKey())) {
+                    success &= applyLoadedGroupData(entry.getValue(), new HashSet<>());
+                }
+            }
+        } finally {
+            for (Group group : groups.values()) {
+                group.getIoLock().unlock();
+            }
+        }
 
-            Map.Entry<Set<NodeDataContainer>, Set<NodeDataContainer>> diff = compareSets(local, remote);
+        if (!success) {
+            throw new RuntimeException("Exception occurred whilst loading a group");
+        }
 
-            Set<NodeDataContainer> toAdd = diff.getKey();
-            Set<NodeDataContainer> toRemove = diff.getValue();
+        GroupManager<?> gm = this.plugin.getGroupManager();
+        gm.getAll().values().stream()
+                .filter(g -> !groups.containsKey(g.getName()))
+                .forEach(gm::unload);
+    }
 
-            if (!toRemove.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeDataContainer nd : toRemove) {
-                            ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
-            }
+    private static boolean applyLoadedGroupData(Group group, Set<NodeDataContainer> data) {
+        try {
+            applyGroupData(group, data);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            group.invalidateCachedData();
+        }
+    }
 
-            if (!toAdd.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_INSERT))) {
-                        for (NodeDataContainer nd : toAdd) {
-                            ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
+    @Override
+    public void saveGroup(Group group) throws SQLException {
+        saveGroups(Collections.singletonList(group));
+    }
+
+    @Override
+    public void saveGroups(Collection<Group> groups) throws SQLException {
+        // lock in a consistent order, to avoid deadlocks with other bulk operations
+        List<Group> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparing(Group::getName));
+
+        for (Group group : sorted) {
+            group.getIoLock().lock();
+        }
+        try {
+            List<Set<NodeDataContainer>> written = new ArrayList<>(sorted.size());
+            runInTransaction(c -> {
+                for (Group group : sorted) {
+                    written.add(writeGroup(c, group));
                 }
+            });
+            for (int i = 0; i < sorted.size(); i++) {
+                sorted.get(i).setPersistedNodes(written.get(i));
+            }
+        } catch (SQLException e) {
+            // the state of the stored data is unknown, so replace it in full next time
+            for (Group group : sorted) {
+                group.setPersistedNodes(null);
             }
+            throw e;
         } finally {
-            group.getIoLock().unlock();
+            for (Group group : sorted) {
+                group.getIoLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the changes to a groups data since it was last persisted.
+     *
+     * @param c the connection
+     * @param group the group
+     * @return the data which is now persisted
+     * @throws SQLException if an error occurs
+     */
+    private Set<NodeDataContainer> writeGroup(Connection c, Group group) throws SQLException {
+        // Empty data, just delete.
+        if (group.enduringData().immutable().isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE))) {
+                ps.setString(1, group.getName());
+                ps.execute();
+            }
+            return new HashSet<>();
+        }
+
+        Set<NodeDataContainer> local = group.enduringData().immutable().values().stream().map(NodeDataContainer::fromNode).collect(Collectors.toSet());
+        Set<NodeDataContainer> persisted = group.getPersistedNodes();
+        if (persisted != null) {
+            writeChanges(c, GROUP_PERMISSIONS_DELETE_SPECIFIC, GROUP_PERMISSIONS_INSERT, group.getName(), local, persisted);
+        } else {
+            replaceNodes(c, GROUP_PERMISSIONS_DELETE, GROUP_PERMISSIONS_INSERT, group.getName(), local);
         }
+        return local;
     }
 
     @Override
@@ -750,6 +893,7 @@ public class SqlStorage implements StorageImplementation {
     public List<HeldPermission<String>> getGroupsWithPermission(Constraint constraint) throws SQLException {
         PreparedStatementBuilder builder = new PreparedStatementBuilder().append(GROUP_PERMISSIONS_SELECT_PERMISSION);
         constraint.appendSql(builder, "permission");
+        appendNotExpired(builder);
 
         List<HeldPermission<String>> held = new ArrayList<>();
         try (Connection c = this.connectionFactory.getConnection()) {
@@ -849,24 +993,29 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public void loadAllTracks() throws SQLException {
-        List<String> tracks = new ArrayList<>();
+        // the groups in each track are selected along with the names, so there's no need to query for each track
+        Map<String, String> tracks = new HashMap<>();
         try (Connection c = this.connectionFactory.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(TRACK_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        tracks.add(rs.getString("name").toLowerCase());
+                        tracks.put(rs.getString("name").toLowerCase(), rs.getString("groups"));
                     }
                 }
             }
         }
 
         boolean success = true;
-        for (String t : tracks) {
+        for (Map.Entry<String, String> entry : tracks.entrySet()) {
+            Track track = this.plugin.getTrackManager().getOrMake(entry.getKey());
+            track.getIoLock().lock();
             try {
-                loadTrack(t);
+                track.setGroups(GsonProvider.normal().fromJson(entry.getValue(), LIST_STRING_TYPE));
             } catch (Exception e) {
                 e.printStackTrace();
                 success = false;
+            } finally {
+                track.getIoLock().unlock();
             }
         }
 
@@ -876,7 +1025,7 @@ public class SqlStorage implements StorageImplementation {
 
         TrackManager<?> tm = this.plugin.getTrackManager();
         tm.getAll().values().stream()
-                .filter(t -> !tracks.contains(t.getName()))
+                .filter(t -> !tracks.containsKey(t.getName()))
                 .forEach(tm::unload);
     }
 
@@ -1002,6 +1151,177 @@ public class SqlStorage implements StorageImplementation {
         return null;
     }
 
+    /**
+     * Runs the given action using a single connection, in a transaction.
+     *
+     * <p>The connections provided by flatfile connection factories are shared between threads,
+     * so can't be used for a transaction. For these, the action is run without one.</p>
+     *
+     * @param action the action
+     * @throws SQLException if the action throws
+     */
+    private void runInTransaction(SqlAction action) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            if (this.connectionFactory instanceof H2ConnectionFactory || this.connectionFactory instanceof SQLiteConnectionFactory) {
+                action.run(c);
+                return;
+            }
+
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                action.run(c);
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Set<NodeDataContainer> readNodes(Connection c, String query, String id) throws SQLException {
+        Set<NodeDataContainer> nodes = new HashSet<>();
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(query))) {
+            ps.setString(1, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String permission = rs.getString("permission");
+                    boolean value = rs.getBoolean("value");
+                    String server = rs.getString("server");
+                    String world = rs.getString("world");
+                    long expiry = rs.getLong("expiry");
+                    String contexts = rs.getString("contexts");
+                    nodes.add(deserializeNode(permission, value, server, world, expiry, contexts));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Writes the differences between the local data and the data last persisted.
+     *
+     * <p>Only used when the persisted data is known, so the rows don't need to be read first.</p>
+     *
+     * @param c the connection
+     * @param deleteQuery the query to delete a single row
+     * @param insertQuery the query to insert a single row
+     * @param id the id of the holder
+     * @param local the local data
+     * @param remote the data last persisted
+     * @throws SQLException if an error occurs
+     */
+    private void writeChanges(Connection c, String deleteQuery, String insertQuery, String id, Set<NodeDataContainer> local, Set<NodeDataContainer> remote) throws SQLException {
+        Map.Entry<Set<NodeDataContainer>, Set<NodeDataContainer>> diff = compareSets(local, remote);
+
+        Set<NodeDataContainer> toAdd = diff.getKey();
+        Set<NodeDataContainer> toRemove = diff.getValue();
+
+        if (!toRemove.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(deleteQuery))) {
+                for (NodeDataContainer nd : toRemove) {
+                    writeNode(ps, id, nd);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        if (!toAdd.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(insertQuery))) {
+                for (NodeDataContainer nd : toAdd) {
+                    writeNode(ps, id, nd);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Replaces all of the rows for a holder with the local data.
+     *
+     * <p>Used when the persisted data isn't known, as the stored rows may have been changed
+     * by another server, or contain duplicates which a diff wouldn't remove.</p>
+     *
+     * @param c the connection
+     * @param deleteAllQuery the query to delete all rows for the holder
+     * @param insertQuery the query to insert a single row
+     * @param id the id of the holder
+     * @param local the local data
+     * @throws SQLException if an error occurs
+     */
+    private void replaceNodes(Connection c, String deleteAllQuery, String insertQuery, String id, Set<NodeDataContainer> local) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(deleteAllQuery))) {
+            ps.setString(1, id);
+            ps.execute();
+        }
+
+        if (!local.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(insertQuery))) {
+                for (NodeDataContainer nd : local) {
+                    writeNode(ps, id, nd);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static void writeNode(PreparedStatement ps, String id, NodeDataContainer nd) throws SQLException {
+        ps.setString(1, id);
+        ps.setString(2, nd.getPermission());
+        ps.setBoolean(3, nd.getValue());
+        ps.setString(4, nd.getServer());
+        ps.setString(5, nd.getWorld());
+        ps.setLong(6, nd.getExpiry());
+        ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
+    }
+
+    private void writePlayer(Connection c, User user) throws SQLException {
+        String uuid = user.getUuid().toString();
+        String primaryGroup = user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME);
+
+        String query;
+        switch (this.connectionFactory.getImplementationName()) {
+            case "H2":
+                // no upsert which leaves the existing username alone, so try to update first
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
+                    ps.setString(1, primaryGroup);
+                    ps.setString(2, uuid);
+                    if (ps.executeUpdate() != 0) {
+                        return;
+                    }
+                }
+                query = PLAYER_INSERT;
+                break;
+            case "SQLite":
+                query = SQLITE_PLAYER_UPSERT;
+                break;
+            case "PostgreSQL":
+                query = POSTGRESQL_PLAYER_UPSERT;
+                break;
+            default:
+                query = MYSQL_PLAYER_UPSERT;
+                break;
+        }
+
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(query))) {
+            ps.setString(1, uuid);
+            ps.setString(2, user.getName().orElse("null").toLowerCase());
+            ps.setString(3, primaryGroup);
+            ps.execute();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+        void run(Connection connection) throws SQLException;
+    }
+
     /**
      * Compares two sets
      * @param local the local set
@@ -30,6 +30,15 @@ import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Audits the holders which have temporary nodes due to expire.
+ *
+ * @see me.lucko.luckperms.common.model.TemporaryNodeExpiryQueue
+ */
 public class ExpireTemporaryTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
@@ -39,29 +48,45 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
-        for (Group group : this.plugin.getGroupManager().getAll().values()) {
-            if (shouldSkip(group)) {
-                continue;
-            }
-            if (group.auditTemporaryPermissions()) {
-                this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
-            }
+        long now = System.currentTimeMillis() / 1000L;
+        Set<PermissionHolder> due = this.plugin.getTemporaryNodeExpiryQueue().pollDue(now);
+        if (due.isEmpty()) {
+            return;
         }
 
-        for (User user : this.plugin.getUserManager().getAll().values()) {
-            if (shouldSkip(user)) {
+        List<Group> groupChanges = new ArrayList<>();
+        for (PermissionHolder holder : due) {
+            if (!isLoaded(holder)) {
                 continue;
             }
-            if (user.auditTemporaryPermissions()) {
-                this.plugin.getStorage().saveUser(user);
+            if (shouldSkip(holder)) {
+                // try again on the next run
+                this.plugin.getTemporaryNodeExpiryQueue().schedule(holder, now);
+                continue;
+            }
+
+            if (holder.auditTemporaryPermissions()) {
+                if (holder instanceof Group) {
+                    this.plugin.getStorage().saveGroup((Group) holder);
+                    groupChanges.add((Group) holder);
+                } else {
+                    this.plugin.getStorage().saveUser((User) holder);
+                }
             }
         }
 
-        if (groupChanges) {
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+        // only invalidate the holders which inherit from the changed groups
+        for (Group group : groupChanges) {
+            this.plugin.getInheritanceHandler().invalidateInheritorCaches(group);
+        }
+    }
+
+    // return true if the holder is the instance currently loaded by its manager
+    private boolean isLoaded(PermissionHolder holder) {
+        if (holder instanceof Group) {
+            return this.plugin.getGroupManager().getIfLoaded(((Group) holder).getName()) == holder;
+        } else {
+            return this.plugin.getUserManager().getIfLoaded(((User) holder).getUuid()) == holder;
         }
     }
 
@@ -78,4 +103,4 @@ public class ExpireTemporaryTask implements Runnable {
         holder.getIoLock().unlock();
         return false;
     }
-}
\ No newline at end of file
+}
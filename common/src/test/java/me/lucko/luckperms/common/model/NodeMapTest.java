@@ -0,0 +1,244 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import me.lucko.luckperms.api.LocalizedNode;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.node.factory.NodeFactory;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NodeMapTest {
+    private static final ImmutableContextSet SURVIVAL = ImmutableContextSet.singleton("server", "survival");
+
+    private LuckPermsPlugin plugin;
+    private Group group;
+    private NodeMap map;
+
+    @Before
+    public void setUp() {
+        this.plugin = TestPlugin.create(new TestPlugin.TestScheduler());
+        this.group = new Group("test", this.plugin);
+        this.map = new NodeMap(this.group);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000L;
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        Node node = NodeFactory.builder("test.permission").build();
+        this.map.add(node);
+
+        LocalizedNode match = this.map.getMatch(node);
+        assertEquals(node, match.getNode());
+        assertEquals("test", match.getLocation());
+        assertEquals(1, this.map.asList().size());
+
+        this.map.remove(node);
+        assertNull(this.map.getMatch(node));
+        assertTrue(this.map.asList().isEmpty());
+        assertTrue(this.map.immutable().isEmpty());
+    }
+
+    @Test
+    public void testAddReplacesNodeWithSameKey() {
+        this.map.add(NodeFactory.builder("test.permission").build());
+        Node negated = NodeFactory.builder("test.permission").setValue(false).build();
+        this.map.add(negated);
+
+        assertEquals(1, this.map.asList().size());
+        assertEquals(negated, this.map.getMatch(negated).getNode());
+    }
+
+    @Test
+    public void testNodesAreBucketedByContext() {
+        Node global = NodeFactory.builder("test.global").build();
+        Node survival = NodeFactory.builder("test.survival").withExtraContext(SURVIVAL).build();
+        this.map.add(global);
+        this.map.add(survival);
+
+        assertEquals(ImmutableSet.of(ImmutableContextSet.empty(), SURVIVAL), this.map.immutable().keySet());
+
+        // global nodes apply in every context
+        List<LocalizedNode> filtered = new ArrayList<>();
+        this.map.copyTo(filtered, SURVIVAL);
+        assertEquals(2, filtered.size());
+
+        filtered.clear();
+        this.map.copyTo(filtered, ImmutableContextSet.singleton("server", "lobby"));
+        assertEquals(1, filtered.size());
+        assertEquals(global, filtered.get(0).getNode());
+
+        this.map.clear(SURVIVAL);
+        assertNull(this.map.getMatch(survival));
+        assertEquals(global, this.map.getMatch(global).getNode());
+        assertEquals(ImmutableSet.of(ImmutableContextSet.empty()), this.map.immutable().keySet());
+    }
+
+    @Test
+    public void testGroupNodesAreIndexed() {
+        Node parent = NodeFactory.buildGroupNode("parent").build();
+        Node negatedParent = NodeFactory.buildGroupNode("other").setValue(false).build();
+        this.map.add(parent);
+        this.map.add(negatedParent);
+        this.map.add(NodeFactory.builder("test.permission").build());
+
+        List<LocalizedNode> groupNodes = new ArrayList<>();
+        this.map.copyGroupNodesTo(groupNodes);
+        assertEquals(1, groupNodes.size());
+        assertEquals(parent, groupNodes.get(0).getNode());
+
+        this.map.remove(parent);
+        groupNodes.clear();
+        this.map.copyGroupNodesTo(groupNodes);
+        assertTrue(groupNodes.isEmpty());
+    }
+
+    @Test
+    public void testSetContent() {
+        this.map.add(NodeFactory.builder("test.old").build());
+
+        Node first = NodeFactory.builder("test.permission").build();
+        Node second = NodeFactory.builder("test.permission").setValue(false).build();
+        Node other = NodeFactory.builder("test.other").build();
+        this.map.setContent(ImmutableList.of(first, other, second));
+
+        // later nodes replace earlier ones with the same key
+        assertEquals(2, this.map.asList().size());
+        assertEquals(second, this.map.getMatch(first).getNode());
+        assertNull(this.map.getMatch(NodeFactory.builder("test.old").build()));
+    }
+
+    @Test
+    public void testApplyChanges() {
+        Node a = NodeFactory.builder("test.a").build();
+        Node b = NodeFactory.builder("test.b").build();
+        this.map.add(a);
+
+        assertTrue(this.map.applyChanges(ImmutableList.of(b), ImmutableList.of(a)));
+        assertNull(this.map.getMatch(a));
+        assertEquals(b, this.map.getMatch(b).getNode());
+
+        // adding a node which is already present (ignoring expiry) isn't a change
+        assertFalse(this.map.applyChanges(ImmutableList.of(b), ImmutableList.of(a)));
+    }
+
+    @Test
+    public void testRemoveIf() {
+        this.map.add(NodeFactory.builder("test.a").build());
+        this.map.add(NodeFactory.builder("test.b").withExtraContext(SURVIVAL).build());
+        this.map.add(NodeFactory.builder("other.c").withExtraContext(SURVIVAL).build());
+
+        assertFalse(this.map.removeIf(n -> n.getPermission().startsWith("none.")));
+        assertTrue(this.map.removeIf(SURVIVAL, n -> n.getPermission().startsWith("test.")));
+        assertEquals(2, this.map.asList().size());
+        assertTrue(this.map.removeIf(n -> true));
+        assertTrue(this.map.asList().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotsAreReused() {
+        this.map.add(NodeFactory.builder("test.permission").build());
+        assertSame(this.map.immutable(), this.map.immutable());
+    }
+
+    @Test
+    public void testChangesAreRecordedForGroups() {
+        Node a = NodeFactory.builder("test.a").build();
+        Node b = NodeFactory.builder("test.b").withExtraContext(SURVIVAL).build();
+
+        assertTrue(this.map.drainChanges().isEmpty());
+
+        this.map.add(a);
+        this.map.add(b);
+        this.map.remove(a);
+        assertEquals(ImmutableSet.of(a, b), this.map.drainChanges());
+
+        this.map.clear(SURVIVAL);
+        assertEquals(ImmutableSet.of(b), this.map.drainChanges());
+        assertTrue(this.map.drainChanges().isEmpty());
+    }
+
+    @Test
+    public void testChangesAreNotTrackedAfterTooManyChanges() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            nodes.add(NodeFactory.builder("test." + i).build());
+        }
+        this.map.setContent(nodes);
+
+        assertNull(this.map.drainChanges());
+
+        // tracking resumes once the changes have been drained
+        Node node = NodeFactory.builder("test.permission").build();
+        this.map.add(node);
+        assertEquals(ImmutableSet.of(node), this.map.drainChanges());
+    }
+
+    @Test
+    public void testTemporaryNodesAreScheduledAndAudited() {
+        Node expired = NodeFactory.builder("test.expired").setExpiry(now() - 10).build();
+        Node later = NodeFactory.builder("test.later").setExpiry(now() + 3600).build();
+        Node permanent = NodeFactory.builder("test.permanent").build();
+        this.map.add(later);
+        this.map.add(expired);
+        this.map.add(permanent);
+
+        Set<PermissionHolder> due = this.plugin.getTemporaryNodeExpiryQueue().pollDue(now());
+        assertEquals(1, due.size());
+        assertSame(this.group, due.iterator().next());
+
+        Set<LocalizedNode> removed = new HashSet<>();
+        assertTrue(this.map.auditTemporaryNodes(removed));
+        assertEquals(1, removed.size());
+        assertEquals(expired, removed.iterator().next().getNode());
+        assertNull(this.map.getMatch(expired));
+        assertEquals(2, this.map.asList().size());
+
+        // nothing else has expired yet
+        assertFalse(this.map.auditTemporaryNodes(null));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TemporaryNodeExpiryQueueTest {
+    private LuckPermsPlugin plugin;
+    private TemporaryNodeExpiryQueue queue;
+
+    @Before
+    public void setUp() {
+        this.plugin = TestPlugin.create(new TestPlugin.TestScheduler());
+        this.queue = new TemporaryNodeExpiryQueue();
+    }
+
+    @Test
+    public void testEmptyQueue() {
+        assertTrue(this.queue.pollDue(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testOnlyDueHoldersArePolled() {
+        Group a = new Group("a", this.plugin);
+        Group b = new Group("b", this.plugin);
+        Group c = new Group("c", this.plugin);
+        this.queue.schedule(c, 300);
+        this.queue.schedule(a, 100);
+        this.queue.schedule(b, 200);
+
+        // entries expiring at exactly the current time aren't due yet
+        assertTrue(this.queue.pollDue(100).isEmpty());
+
+        Set<PermissionHolder> due = this.queue.pollDue(201);
+        assertEquals(2, due.size());
+        assertTrue(due.contains(a));
+        assertTrue(due.contains(b));
+
+        // polled entries are removed from the queue
+        assertTrue(this.queue.pollDue(201).isEmpty());
+
+        due = this.queue.pollDue(Long.MAX_VALUE);
+        assertEquals(1, due.size());
+        assertTrue(due.contains(c));
+    }
+
+    @Test
+    public void testHolderScheduledTwiceIsPolledOnce() {
+        Group group = new Group("test", this.plugin);
+        this.queue.schedule(group, 100);
+        this.queue.schedule(group, 150);
+
+        assertEquals(1, this.queue.pollDue(200).size());
+        assertTrue(this.queue.pollDue(200).isEmpty());
+    }
+}
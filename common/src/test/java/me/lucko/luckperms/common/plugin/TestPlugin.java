@@ -0,0 +1,215 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin;
+
+import me.lucko.luckperms.common.api.implementation.ApiConfiguration;
+import me.lucko.luckperms.common.cacheddata.CachedDataStatistics;
+import me.lucko.luckperms.common.config.ConfigKey;
+import me.lucko.luckperms.common.config.ContextsFile;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.config.adapter.ConfigurationAdapter;
+import me.lucko.luckperms.common.event.AbstractEventBus;
+import me.lucko.luckperms.common.event.EventFactory;
+import me.lucko.luckperms.common.inheritance.InheritanceHandler;
+import me.lucko.luckperms.common.model.TemporaryNodeExpiryQueue;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal {@link LuckPermsPlugin} for tests, backed by the default configuration.
+ *
+ * <p>Only the services needed to create and modify users and groups are
+ * available - calling any other method throws an exception.</p>
+ */
+public final class TestPlugin {
+
+    /**
+     * Creates a new plugin instance.
+     *
+     * @param scheduler the scheduler to use
+     * @return the plugin
+     */
+    public static LuckPermsPlugin create(SchedulerAdapter scheduler) {
+        Map<String, Object> services = new HashMap<>();
+        LuckPermsPlugin plugin = proxy(LuckPermsPlugin.class, services);
+
+        Map<String, Object> bootstrapServices = new HashMap<>();
+        bootstrapServices.put("getScheduler", scheduler);
+
+        services.put("getBootstrap", proxy(LuckPermsBootstrap.class, bootstrapServices));
+        services.put("getConfiguration", new DefaultConfiguration(plugin));
+        services.put("getEventFactory", new EventFactory(new EventBus(plugin)));
+        services.put("getCachedDataStatistics", new CachedDataStatistics(plugin));
+        services.put("getInheritanceHandler", new InheritanceHandler(plugin));
+        services.put("getTemporaryNodeExpiryQueue", new TemporaryNodeExpiryQueue());
+        return plugin;
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Object> services) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object service = services.get(method.getName());
+            if (service == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "#" + method.getName());
+            }
+            return service;
+        }));
+    }
+
+    private TestPlugin() {
+        throw new AssertionError();
+    }
+
+    /**
+     * A scheduler which runs async tasks straight away in the calling thread,
+     * and holds delayed tasks until they are run by the test.
+     */
+    public static final class TestScheduler implements SchedulerAdapter {
+        private final List<Runnable> delayed = new ArrayList<>();
+
+        @Override
+        public Executor async() {
+            return Runnable::run;
+        }
+
+        @Override
+        public Executor sync() {
+            return Runnable::run;
+        }
+
+        @Override
+        public synchronized SchedulerTask asyncLater(Runnable task, long delay, TimeUnit unit) {
+            this.delayed.add(task);
+            return () -> {
+                synchronized (this) {
+                    this.delayed.remove(task);
+                }
+            };
+        }
+
+        @Override
+        public SchedulerTask asyncRepeating(Runnable task, long interval, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void shutdown() {
+
+        }
+
+        /**
+         * Gets the number of delayed tasks waiting to be run.
+         *
+         * @return the number of delayed tasks
+         */
+        public synchronized int delayedCount() {
+            return this.delayed.size();
+        }
+
+        /**
+         * Runs the delayed tasks which have been scheduled so far.
+         */
+        public void runDelayed() {
+            List<Runnable> tasks;
+            synchronized (this) {
+                tasks = new ArrayList<>(this.delayed);
+                this.delayed.clear();
+            }
+            tasks.forEach(Runnable::run);
+        }
+    }
+
+    private static final class DefaultConfiguration implements LuckPermsConfiguration {
+        private final LuckPermsPlugin plugin;
+        private final ConfigurationAdapter adapter;
+
+        DefaultConfiguration(LuckPermsPlugin plugin) {
+            this.plugin = plugin;
+            Map<String, Object> services = new HashMap<>();
+            services.put("getPlugin", plugin);
+            this.adapter = (ConfigurationAdapter) Proxy.newProxyInstance(ConfigurationAdapter.class.getClassLoader(), new Class<?>[]{ConfigurationAdapter.class}, (proxy, method, args) -> {
+                // return the default value for every option
+                if (args != null && args.length == 2) {
+                    return args[1];
+                }
+                Object service = services.get(method.getName());
+                if (service == null) {
+                    throw new UnsupportedOperationException("ConfigurationAdapter#" + method.getName());
+                }
+                return service;
+            });
+        }
+
+        @Override
+        public ApiConfiguration getDelegate() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LuckPermsPlugin getPlugin() {
+            return this.plugin;
+        }
+
+        @Override
+        public ContextsFile getContextsFile() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reload() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void load() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T get(ConfigKey<T> key) {
+            return key.get(this.adapter);
+        }
+    }
+
+    private static final class EventBus extends AbstractEventBus<Object> {
+        EventBus(LuckPermsPlugin plugin) {
+            super(plugin, null);
+        }
+
+        @Override
+        protected Object checkPlugin(Object plugin) throws IllegalArgumentException {
+            return plugin;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SaveBufferTest {
+    private TestPlugin.TestScheduler scheduler;
+    private LuckPermsPlugin plugin;
+
+    /** The writes made to the storage implementation, as "method:holders" */
+    private List<String> writes;
+
+    /** The names of groups which fail to save */
+    private Set<String> failing;
+
+    private SaveBuffer buffer;
+
+    @Before
+    public void setUp() {
+        this.scheduler = new TestPlugin.TestScheduler();
+        this.plugin = TestPlugin.create(this.scheduler);
+        this.writes = new ArrayList<>();
+        this.failing = new HashSet<>();
+        this.buffer = new SaveBuffer(recordingImplementation(), this.scheduler, 1000L);
+    }
+
+    private StorageImplementation recordingImplementation() {
+        return (StorageImplementation) Proxy.newProxyInstance(StorageImplementation.class.getClassLoader(), new Class<?>[]{StorageImplementation.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            switch (name) {
+                case "saveUser":
+                    this.writes.add(name + ":" + ((User) args[0]).getUuid());
+                    return null;
+                case "saveGroup":
+                    Group group = (Group) args[0];
+                    this.writes.add(name + ":" + group.getName());
+                    if (this.failing.contains(group.getName())) {
+                        throw new RuntimeException("failed to save " + group.getName());
+                    }
+                    return null;
+                case "saveUsers":
+                case "saveGroups":
+                    List<String> holders = new ArrayList<>();
+                    for (Object holder : (Collection<?>) args[0]) {
+                        holders.add(holder instanceof User ? ((User) holder).getUuid().toString() : ((Group) holder).getName());
+                    }
+                    this.writes.add(name + ":" + String.join(",", holders));
+                    for (String holder : holders) {
+                        if (this.failing.contains(holder)) {
+                            throw new RuntimeException("failed to save " + holder);
+                        }
+                    }
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private Group group(String name) {
+        return new Group(name, this.plugin);
+    }
+
+    @Test
+    public void testSavesAreDelayedAndCoalesced() {
+        Group group = group("test");
+        CompletableFuture<Void> first = this.buffer.saveGroup(group);
+        CompletableFuture<Void> second = this.buffer.saveGroup(group);
+
+        assertTrue(this.writes.isEmpty());
+        assertFalse(first.isDone());
+        assertEquals(1, this.scheduler.delayedCount());
+
+        this.scheduler.runDelayed();
+        assertEquals(ImmutableList.of("saveGroup:test"), this.writes);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    public void testLatestInstanceIsWritten() {
+        Group first = group("test");
+        Group second = group("test");
+        List<Group> written = new ArrayList<>();
+
+        SaveBuffer buffer = new SaveBuffer((StorageImplementation) Proxy.newProxyInstance(StorageImplementation.class.getClassLoader(), new Class<?>[]{StorageImplementation.class}, (proxy, method, args) -> {
+            written.add((Group) args[0]);
+            return null;
+        }), this.scheduler, 1000L);
+
+        buffer.saveGroup(first);
+        buffer.saveGroup(second);
+        this.scheduler.runDelayed();
+
+        assertEquals(1, written.size());
+        assertSame(second, written.get(0));
+    }
+
+    @Test
+    public void testSavesAreWrittenInBatches() {
+        User user = new User(UUID.randomUUID(), this.plugin);
+        this.buffer.saveGroup(group("a"));
+        this.buffer.saveGroup(group("b"));
+        this.buffer.saveUser(user);
+
+        this.scheduler.runDelayed();
+        assertEquals(ImmutableList.of("saveGroups:a,b", "saveUser:" + user.getUuid()), this.writes);
+    }
+
+    @Test
+    public void testLargeBatchesAreSplit() {
+        for (int i = 0; i < 1200; i++) {
+            this.buffer.saveGroup(group("group" + i));
+        }
+
+        this.buffer.flush();
+        assertEquals(3, this.writes.size());
+        assertEquals(500, this.writes.get(0).split(",").length);
+        assertEquals(500, this.writes.get(1).split(",").length);
+        assertEquals(200, this.writes.get(2).split(",").length);
+    }
+
+    @Test
+    public void testWaitingFlushesStraightAway() {
+        CompletableFuture<Void> future = this.buffer.saveGroup(group("test"));
+        future.join();
+
+        assertEquals(ImmutableList.of("saveGroup:test"), this.writes);
+
+        // the scheduled flush has nothing left to write
+        this.scheduler.runDelayed();
+        assertEquals(1, this.writes.size());
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedIndividually() {
+        this.failing.add("b");
+        CompletableFuture<Void> a = this.buffer.saveGroup(group("a"));
+        CompletableFuture<Void> b = this.buffer.saveGroup(group("b"));
+
+        this.buffer.flush();
+        assertEquals(ImmutableList.of("saveGroups:a,b", "saveGroup:a", "saveGroup:b"), this.writes);
+        assertTrue(a.isDone() && !a.isCompletedExceptionally());
+        assertTrue(b.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFlushGroup() {
+        this.buffer.saveGroup(group("a"));
+        this.buffer.saveGroup(group("b"));
+
+        this.buffer.flushGroup("A");
+        assertEquals(ImmutableList.of("saveGroup:a"), this.writes);
+
+        this.buffer.flush();
+        assertEquals(ImmutableList.of("saveGroup:a", "saveGroup:b"), this.writes);
+    }
+
+    @Test
+    public void testSaveAfterFlushIsWrittenAgain() {
+        Group group = group("test");
+        this.buffer.saveGroup(group);
+        this.buffer.flush();
+        this.buffer.saveGroup(group);
+        this.scheduler.runDelayed();
+
+        assertEquals(ImmutableList.of("saveGroup:test", "saveGroup:test"), this.writes);
+    }
+
+    @Test
+    public void testSavesAreWrittenDirectlyAfterClose() {
+        this.buffer.saveGroup(group("a"));
+        this.buffer.close();
+        assertEquals(ImmutableList.of("saveGroup:a"), this.writes);
+
+        CompletableFuture<Void> future = this.buffer.saveGroup(group("b"));
+        assertTrue(future.isDone());
+        assertEquals(ImmutableList.of("saveGroup:a", "saveGroup:b"), this.writes);
+    }
+}
@@ -65,6 +65,16 @@ public class ChildProcessor extends AbstractPermissionProcessor implements Permi
         this.childPermissions = builder;
     }
 
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        return isChild(permission, changedPermission, true) || isChild(permission, changedPermission, false);
+    }
+
+    private boolean isChild(String permission, String parent, boolean value) {
+        Map<String, Boolean> children = this.plugin.getPermissionMap().getChildPermissions(parent, value);
+        return children != null && children.containsKey(permission);
+    }
+
     @Override
     public void invalidate() {
         refresh();
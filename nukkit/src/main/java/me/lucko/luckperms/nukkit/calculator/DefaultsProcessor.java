@@ -58,4 +58,10 @@ public class DefaultsProcessor implements PermissionProcessor {
         }
         return RESULT_FACTORY.result(Tristate.fromBoolean(def.getValue(this.isOp)), "permission map");
     }
+
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        // defaults don't depend on the source map
+        return false;
+    }
 }
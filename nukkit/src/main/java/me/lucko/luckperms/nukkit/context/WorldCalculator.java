@@ -26,8 +26,8 @@
 package me.lucko.luckperms.nukkit.context;
 
 import me.lucko.luckperms.api.Contexts;
-import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.MutableContextSet;
+import me.lucko.luckperms.api.context.SignallingContextCalculator;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
@@ -35,7 +35,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 
 import cn.nukkit.Player;
 
-public class WorldCalculator implements ContextCalculator<Player> {
+public class WorldCalculator implements SignallingContextCalculator<Player> {
     private final LuckPermsPlugin plugin;
 
     public WorldCalculator(LuckPermsPlugin plugin) {
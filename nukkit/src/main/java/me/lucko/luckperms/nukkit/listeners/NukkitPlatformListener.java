@@ -91,6 +91,9 @@ public class NukkitPlatformListener implements Listener {
             Player player = (Player) e.getEntity();
             this.plugin.getContextManager().invalidateCache(player);
             this.plugin.refreshAutoOp(player);
+
+            // the level hasn't changed yet, so invalidate again once it has
+            this.plugin.getBootstrap().getScheduler().executeSync(() -> this.plugin.getContextManager().invalidateCache(player));
         }
     }
 
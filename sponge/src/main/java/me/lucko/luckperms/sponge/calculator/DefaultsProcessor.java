@@ -59,4 +59,10 @@ public abstract class DefaultsProcessor implements PermissionProcessor {
 
         return TristateResult.UNDEFINED;
     }
+
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        // defaults don't depend on the source map
+        return false;
+    }
 }
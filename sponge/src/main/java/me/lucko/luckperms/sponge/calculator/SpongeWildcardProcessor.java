@@ -31,9 +31,19 @@ import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
 import me.lucko.luckperms.common.node.model.ImmutableNode;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 public class SpongeWildcardProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(SpongeWildcardProcessor.class);
 
+    /**
+     * The result of a match against each entry in the source map
+     */
+    private Map<String, TristateResult> results = Collections.emptyMap();
+
     @Override
     public TristateResult hasPermission(String permission) {
         String node = permission;
@@ -46,9 +56,9 @@ public class SpongeWildcardProcessor extends AbstractPermissionProcessor impleme
 
             node = node.substring(0, endIndex);
             if (!node.isEmpty()) {
-                Tristate t = Tristate.fromNullableBoolean(this.sourceMap.get(node));
-                if (t != Tristate.UNDEFINED) {
-                    return RESULT_FACTORY.result(t, "match: " + node);
+                TristateResult match = this.results.get(node);
+                if (match != null) {
+                    return match;
                 }
             }
         }
@@ -56,4 +66,34 @@ public class SpongeWildcardProcessor extends AbstractPermissionProcessor impleme
         return TristateResult.UNDEFINED;
     }
 
+    @Override
+    public void refresh() {
+        Map<String, TristateResult> results = new HashMap<>(this.sourceMap.size());
+        for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
+            results.put(e.getKey(), RESULT_FACTORY.result(Tristate.fromBoolean(e.getValue()), "match: ", e.getKey()));
+        }
+        this.results = results;
+    }
+
+    @Override
+    public void refresh(Set<String> changedPermissions) {
+        Map<String, TristateResult> results = new HashMap<>(this.results);
+        for (String permission : changedPermissions) {
+            Boolean value = this.sourceMap.get(permission);
+            if (value == null) {
+                results.remove(permission);
+            } else {
+                results.put(permission, RESULT_FACTORY.result(Tristate.fromBoolean(value), "match: ", permission));
+            }
+        }
+        this.results = results;
+    }
+
+    @Override
+    public boolean isAffectedBy(String permission, String changedPermission) {
+        // any parent node of the permission is treated as a wildcard
+        return permission.length() > changedPermission.length() &&
+                permission.startsWith(changedPermission) &&
+                permission.charAt(changedPermission.length()) == ImmutableNode.NODE_SEPARATOR;
+    }
 }
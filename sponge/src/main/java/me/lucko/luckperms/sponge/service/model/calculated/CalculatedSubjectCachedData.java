@@ -36,9 +36,8 @@ import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
-import me.lucko.luckperms.common.calculator.processor.MapProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
-import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieProcessor;
 import me.lucko.luckperms.common.metastacking.SimpleMetaStackDefinition;
 import me.lucko.luckperms.common.metastacking.StandardStackElements;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -99,9 +98,7 @@ public class CalculatedSubjectCachedData extends AbstractCachedData implements C
     @Override
     public PermissionCalculator build(Contexts contexts, CacheMetadata metadata) {
         ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();
-        processors.add(new MapProcessor());
-        processors.add(new SpongeWildcardProcessor());
-        processors.add(new WildcardProcessor());
+        processors.add(new TrieProcessor(true, ImmutableList.of(new SpongeWildcardProcessor())));
 
         if (!this.subject.getParentCollection().isDefaultsCollection()) {
             processors.add(new FixedDefaultsProcessor(this.subject.getService(), contexts.getContexts().makeImmutable(), this.subject.getDefaults()));
@@ -451,8 +451,7 @@ public class PermissionHolderSubjectData implements LPSubjectData {
         if (this.type == NodeMapType.TRANSIENT) {
             // don't bother saving to primary storage. just refresh
             if (t.getType().isGroup()) {
-                this.service.getPlugin().getGroupManager().invalidateAllGroupCaches();
-                this.service.getPlugin().getUserManager().invalidateAllUserCaches();
+                this.service.getPlugin().getInheritanceHandler().invalidateInheritorCaches(((Group) t));
                 return CompletableFuture.completedFuture(null);
             }
         }
@@ -463,8 +462,7 @@ public class PermissionHolderSubjectData implements LPSubjectData {
             return this.service.getPlugin().getStorage().saveUser(user);
         } else {
             Group group = ((Group) t);
-            this.service.getPlugin().getGroupManager().invalidateAllGroupCaches();
-            this.service.getPlugin().getUserManager().invalidateAllUserCaches();
+            this.service.getPlugin().getInheritanceHandler().invalidateInheritorCaches(group);
             return this.service.getPlugin().getStorage().saveGroup(group);
         }
     }
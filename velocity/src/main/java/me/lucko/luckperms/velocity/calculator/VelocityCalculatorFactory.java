@@ -31,10 +31,9 @@ import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
-import me.lucko.luckperms.common.calculator.processor.MapProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
-import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieProcessor;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.velocity.LPVelocityPlugin;
 
@@ -49,15 +48,13 @@ public class VelocityCalculatorFactory implements CalculatorFactory {
     public PermissionCalculator build(Contexts contexts, CacheMetadata metadata) {
         ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();
 
-        processors.add(new MapProcessor());
+        ImmutableList.Builder<PermissionProcessor> intermediates = ImmutableList.builder();
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_REGEX)) {
-            processors.add(new RegexProcessor());
+            intermediates.add(new RegexProcessor());
         }
 
-        if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS)) {
-            processors.add(new WildcardProcessor());
-        }
+        processors.add(new TrieProcessor(this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS), intermediates.build()));
 
         return new PermissionCalculator(this.plugin, metadata, processors.build());
     }